@@ -0,0 +1,32 @@
+package ruclinic;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the standard JMH command line and saves the results
+ * as JSON under results/, one file per run, so runs can be compared.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        File directory = new File("results");
+        directory.mkdirs();
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new java.util.Date());
+        File result = new File(directory, "jmh-" + stamp + ".json");
+
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.getPath())
+                .build()).run();
+        System.out.println("Results saved to " + result.getPath());
+    }
+}
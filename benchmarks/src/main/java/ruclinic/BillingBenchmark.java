@@ -0,0 +1,59 @@
+package ruclinic;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the PS billing statement command, which reads the totals from the
+ * billing ledger. PS settles the ledger, and the calendar too unless it is
+ * kept, so the calendar is rebuilt before every measured call and each call
+ * is timed on its own.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g" })
+public class BillingBenchmark {
+    @Param({ "1000", "100000", "1000000" })
+    public int appointments;
+
+    @Param({ "false", "true" })
+    public boolean keepCalendar;
+
+    private DataGenerator generator;
+    private ClinicManager clinic;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        generator = new DataGenerator();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() throws IOException {
+        clinic = generator.loadedClinic(appointments, 0, 0);
+        clinic.setKeepCalendarOnBilling(keepCalendar);
+    }
+
+    @Benchmark
+    public void billingStatements() {
+        clinic.processCommand("PS");
+    }
+}
@@ -0,0 +1,99 @@
+package ruclinic;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the ClinicManager command hot paths (D, T, C, R, PA and PC)
+ * against a calendar preloaded with the given number of office appointments.
+ *
+ * The measured bookings are made by walk-in patients with spare doctors and
+ * technicians that the preload leaves free, and each booking is cancelled
+ * again so the calendar size stays fixed for the whole run.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g" })
+public class ClinicManagerBenchmark {
+    private static final int SPARE_DOCTORS = 1;
+    private static final int TECHNICIANS = 60; // Ten per location
+
+    @Param({ "1000", "100000", "1000000" })
+    public int appointments;
+
+    private DataGenerator generator;
+    private ClinicManager clinic;
+    private int spareNpi;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        generator = new DataGenerator();
+        clinic = generator.loadedClinic(appointments, SPARE_DOCTORS, TECHNICIANS);
+        spareNpi = generator.doctorsFor(appointments) + 1;
+    }
+
+    @Benchmark
+    public void bookAndCancelOffice() {
+        int n = cursor++;
+        int day = n % generator.dayCount();
+        int slot = (n / generator.dayCount()) % DataGenerator.SLOTS;
+        int patient = -1 - (n & 0xffff);
+        clinic.processCommand(generator.officeBooking(day, slot, patient, spareNpi));
+        clinic.processCommand(generator.cancel(day, slot, patient));
+    }
+
+    @Benchmark
+    public void bookAndCancelImaging() {
+        int n = cursor++;
+        int day = n % generator.dayCount();
+        int slot = (n / generator.dayCount()) % DataGenerator.SLOTS;
+        int patient = -1 - (n & 0xffff);
+        clinic.processCommand(generator.imagingBooking(day, slot, patient, n));
+        clinic.processCommand(generator.cancel(day, slot, patient));
+    }
+
+    @Benchmark
+    public void rescheduleRoundTrip() {
+        // Move the first patient of a day between slot 1 and a free slot and back
+        int n = cursor++;
+        int day = n % generator.dayCount();
+        int patient = -0x20000 - (n & 0xffff);
+        clinic.processCommand(generator.officeBooking(day, 0, patient, spareNpi));
+        clinic.processCommand(generator.reschedule(day, 0, patient, 11));
+        clinic.processCommand(generator.reschedule(day, 11, patient, 0));
+        clinic.processCommand(generator.cancel(day, 0, patient));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5)
+    public void listByDateTimeProvider() {
+        clinic.processCommand("PA");
+    }
+
+    @Benchmark
+    public void providerCredits() {
+        clinic.processCommand("PC");
+    }
+}
@@ -0,0 +1,92 @@
+package ruclinic;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures booking throughput with several front desks sharing one clinic
+ * manager. For office appointments each desk books and cancels with its own
+ * doctor, and consecutive desks are at different locations, so the desks only
+ * contend on the shared calendar structures. For imaging appointments every
+ * desk claims technicians from the same rotation.
+ *
+ * Run with -t to change the number of desks.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g" })
+@Threads(4)
+public class ConcurrentBookingBenchmark {
+    private static final int PRELOADED = 10000;
+    private static final int DESKS = 64; // Most desks a run can have
+    private static final int TECHNICIANS = 12;
+
+    private DataGenerator generator;
+    private ClinicManager clinic;
+    private int firstSpareNpi;
+    private final AtomicInteger nextDesk = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        generator = new DataGenerator();
+        clinic = generator.loadedClinic(PRELOADED, DESKS, TECHNICIANS);
+        firstSpareNpi = generator.doctorsFor(PRELOADED) + 1;
+    }
+
+    /**
+     * A front desk with its own doctor and walk-in patients.
+     */
+    @State(Scope.Thread)
+    public static class Desk {
+        private int npi;
+        private int patientBase;
+        private int cursor;
+
+        @Setup(Level.Trial)
+        public void setUp(ConcurrentBookingBenchmark benchmark) {
+            int desk = benchmark.nextDesk.getAndIncrement() % DESKS;
+            npi = benchmark.firstSpareNpi + desk;
+            patientBase = -1 - (desk << 16);
+        }
+    }
+
+    @Benchmark
+    public void bookAndCancel(Desk desk) {
+        int n = desk.cursor++;
+        int day = n % generator.dayCount();
+        int slot = (n / generator.dayCount()) % DataGenerator.SLOTS;
+        int patient = desk.patientBase - (n & 0xffff);
+        clinic.processCommand(generator.officeBooking(day, slot, patient, desk.npi));
+        clinic.processCommand(generator.cancel(day, slot, patient));
+    }
+
+    @Benchmark
+    public void bookAndCancelImaging(Desk desk) {
+        int n = desk.cursor++;
+        int day = n % generator.dayCount();
+        int slot = (n / generator.dayCount()) % DataGenerator.SLOTS;
+        int patient = desk.patientBase - (n & 0xffff);
+        clinic.processCommand(generator.imagingBooking(day, slot, patient, n));
+        clinic.processCommand(generator.cancel(day, slot, patient));
+    }
+}
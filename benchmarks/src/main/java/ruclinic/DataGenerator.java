@@ -0,0 +1,248 @@
+package ruclinic;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+/**
+ * Generates provider rosters, patients and command lines for the benchmarks.
+ *
+ * The data is deterministic for a given scale. Appointment dates are weekdays
+ * inside the six month booking window counted from today, so every generated
+ * booking passes the date checks of ClinicManager.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+public final class DataGenerator {
+    public static final int SLOTS = 12;
+
+    private static final String[] FIRST_NAMES = { "JAMES", "MARY", "ROBERT", "PATRICIA", "JOHN", "JENNIFER",
+            "MICHAEL", "LINDA", "DAVID", "ELIZABETH", "WILLIAM", "BARBARA", "RICHARD", "SUSAN", "JOSEPH", "JESSICA",
+            "THOMAS", "SARAH", "CHARLES", "KAREN", "PRIYA", "ARJUN", "WEI", "MEI", "CARLOS", "MARIA", "AHMED",
+            "FATIMA", "KENJI", "YUKI", "OLGA", "IVAN", "AMARA", "KOFI", "LUCA", "SOFIA", "NOAH", "EMMA", "LIAM",
+            "AVA" };
+    private static final String[] LAST_NAMES = { "SMITH", "JOHNSON", "WILLIAMS", "BROWN", "JONES", "GARCIA",
+            "MILLER", "DAVIS", "RODRIGUEZ", "MARTINEZ", "HERNANDEZ", "LOPEZ", "GONZALEZ", "WILSON", "ANDERSON",
+            "THOMAS", "TAYLOR", "MOORE", "JACKSON", "MARTIN", "LEE", "PEREZ", "THOMPSON", "WHITE", "HARRIS",
+            "PATEL", "SHAH", "KAUR", "SINGH", "NGUYEN", "KIM", "CHEN", "WANG", "TANAKA", "SATO", "IVANOV",
+            "MENSAH", "ROSSI", "MULLER", "COHEN" };
+    private static final String[] SERVICES = { "xray", "ultrasound", "catscan" };
+
+    private final LocalDate[] days;
+
+    /**
+     * Creates a generator for the booking window that starts tomorrow.
+     */
+    public DataGenerator() {
+        ArrayList<LocalDate> weekdays = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        LocalDate horizon = today.plusMonths(6);
+        for (LocalDate day = today.plusDays(1); day.isBefore(horizon); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                weekdays.add(day);
+            }
+        }
+        this.days = weekdays.toArray(new LocalDate[0]);
+    }
+
+    /**
+     * Gets the number of bookable weekdays in the window.
+     *
+     * @return the number of days.
+     */
+    public int dayCount() {
+        return days.length;
+    }
+
+    /**
+     * Gets the number of doctors needed so the calendar can hold the given
+     * number of office appointments.
+     *
+     * @param appointments the number of appointments.
+     * @return the number of doctors.
+     */
+    public int doctorsFor(int appointments) {
+        return appointments / (days.length * SLOTS) + 1;
+    }
+
+    /**
+     * Writes a provider roster in the providers.txt format.
+     *
+     * @param doctors     the number of doctors, with NPIs 1 to doctors.
+     * @param technicians the number of technicians.
+     * @return the path of the written file.
+     * @throws IOException if the file cannot be written.
+     */
+    public Path writeProviders(int doctors, int technicians) throws IOException {
+        Path file = Files.createTempFile("providers", ".txt");
+        file.toFile().deleteOnExit();
+        Location[] locations = Location.values();
+        Specialty[] specialties = Specialty.values();
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < doctors; i++) {
+                writer.write(String.format("D  %s  %s  %s  %s  %s  %d%n", firstName(i), lastName(i), dob(i),
+                        locations[i % locations.length].name(), specialties[i % specialties.length].name(), i + 1));
+            }
+            for (int i = 0; i < technicians; i++) {
+                writer.write(String.format("T  %s  %s  %s  %s  %d%n", firstName(i + 7), lastName(i + 11), dob(i + 3),
+                        locations[i % locations.length].name(), 100 + 10 * (i % 6)));
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Builds the office booking command of the i-th appointment. Appointments
+     * fill every slot of a doctor's window before moving to the next doctor, and
+     * each patient books three consecutive slots.
+     *
+     * @param i the appointment number.
+     * @return the D command line.
+     */
+    public String officeBooking(int i) {
+        int slot = i % SLOTS;
+        int day = (i / SLOTS) % days.length;
+        int doctor = i / (SLOTS * days.length);
+        return officeBooking(day, slot, i / 3, doctor + 1);
+    }
+
+    /**
+     * Builds an office booking command.
+     *
+     * @param day     the day index in the window.
+     * @param slot    the slot index, 0 to 11.
+     * @param patient the patient number, negative for a walk-in patient.
+     * @param npi     the doctor's NPI.
+     * @return the D command line.
+     */
+    public String officeBooking(int day, int slot, int patient, int npi) {
+        return String.format("D,%s,%d,%s,%s,%s,%d", date(day), slot + 1, firstName(patient), lastName(patient),
+                dob(patient), npi);
+    }
+
+    /**
+     * Builds an imaging booking command.
+     *
+     * @param day     the day index in the window.
+     * @param slot    the slot index, 0 to 11.
+     * @param patient the patient number.
+     * @param service the service number, 0 to 2.
+     * @return the T command line.
+     */
+    public String imagingBooking(int day, int slot, int patient, int service) {
+        return String.format("T,%s,%d,%s,%s,%s,%s", date(day), slot + 1, firstName(patient), lastName(patient),
+                dob(patient), SERVICES[service % SERVICES.length]);
+    }
+
+    /**
+     * Builds the cancel command of a booking.
+     *
+     * @param day     the day index in the window.
+     * @param slot    the slot index, 0 to 11.
+     * @param patient the patient number.
+     * @return the C command line.
+     */
+    public String cancel(int day, int slot, int patient) {
+        return String.format("C,%s,%d,%s,%s,%s", date(day), slot + 1, firstName(patient), lastName(patient),
+                dob(patient));
+    }
+
+    /**
+     * Builds the reschedule command of a booking.
+     *
+     * @param day     the day index in the window.
+     * @param slot    the current slot index, 0 to 11.
+     * @param patient the patient number.
+     * @param newSlot the new slot index, 0 to 11.
+     * @return the R command line.
+     */
+    public String reschedule(int day, int slot, int patient, int newSlot) {
+        return String.format("R,%s,%d,%s,%s,%s,%d", date(day), slot + 1, firstName(patient), lastName(patient),
+                dob(patient), newSlot + 1);
+    }
+
+    /**
+     * Creates a clinic manager with a generated roster and books the given
+     * number of office appointments. The command output is discarded.
+     *
+     * @param appointments the number of appointments to book.
+     * @param spareDoctors doctors added after the filled ones, left free for the
+     *                     measured bookings.
+     * @param technicians  the number of technicians.
+     * @return the loaded clinic manager.
+     * @throws IOException if the roster cannot be written.
+     */
+    public ClinicManager loadedClinic(int appointments, int spareDoctors, int technicians) throws IOException {
+        int doctors = doctorsFor(appointments);
+        Path roster = writeProviders(doctors + spareDoctors, technicians);
+        ClinicManager clinic = new ClinicManager(roster.toString(), discard());
+        for (int i = 0; i < appointments; i++) {
+            clinic.processCommand(officeBooking(i));
+        }
+        return clinic;
+    }
+
+    /**
+     * Gets the date of a day in the window, in the M/D/YYYY command format.
+     *
+     * @param day the day index.
+     * @return the formatted date.
+     */
+    public String date(int day) {
+        LocalDate date = days[day % days.length];
+        return date.getMonthValue() + "/" + date.getDayOfMonth() + "/" + date.getYear();
+    }
+
+    /**
+     * Creates a writer that drops everything written to it.
+     *
+     * @return the writer.
+     */
+    public static PrintWriter discard() {
+        return new PrintWriter(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+    }
+
+    // Negative person numbers are walk-in patients whose names never match the
+    // preloaded patients, since cancel and reschedule match by name
+    private static String firstName(int person) {
+        if (person < 0) {
+            return "WALKIN";
+        }
+        return FIRST_NAMES[person % FIRST_NAMES.length];
+    }
+
+    private static String lastName(int person) {
+        if (person < 0) {
+            return "W" + (-person);
+        }
+        return LAST_NAMES[(person / FIRST_NAMES.length) % LAST_NAMES.length];
+    }
+
+    // Unique for each person below 1600 * 70 * 12 * 28
+    private static String dob(int person) {
+        if (person < 0) {
+            return "1/1/1980";
+        }
+        int n = person / (FIRST_NAMES.length * LAST_NAMES.length);
+        int year = 1940 + n % 70;
+        int month = 1 + (n / 70) % 12;
+        int day = 1 + (n / (70 * 12)) % 28;
+        return month + "/" + day + "/" + year;
+    }
+}
@@ -0,0 +1,72 @@
+package ruclinic;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the technician search of an imaging booking as the rotation grows.
+ *
+ * Before the run the X-ray room is booked at every location but one at the
+ * first date and timeslot, so most technicians are passed over before a free
+ * one is found, and at every location at the second timeslot, so the whole
+ * rotation is searched in vain. The search time should stay flat as the number
+ * of technicians grows.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImagingAssignmentBenchmark {
+    private static final int XRAY = 0; // Service number of the X-ray room
+
+    @Param({ "6", "60", "600" })
+    public int technicians;
+
+    private DataGenerator generator;
+    private ClinicManager clinic;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        generator = new DataGenerator();
+        clinic = generator.loadedClinic(0, 0, technicians);
+        int locations = Location.values().length;
+        for (int patient = 0; patient < locations; patient++) {
+            if (patient < locations - 1) {
+                clinic.processCommand(generator.imagingBooking(0, 0, patient, XRAY));
+            }
+            clinic.processCommand(generator.imagingBooking(0, 1, patient, XRAY));
+        }
+    }
+
+    @Benchmark
+    public void bookAndCancelImaging() {
+        int patient = -1 - (cursor++ & 0xffff);
+        clinic.processCommand(generator.imagingBooking(0, 0, patient, XRAY));
+        clinic.processCommand(generator.cancel(0, 0, patient));
+    }
+
+    @Benchmark
+    public void bookFullSlot() {
+        int patient = -1 - (cursor++ & 0xffff);
+        clinic.processCommand(generator.imagingBooking(0, 1, patient, XRAY));
+    }
+}
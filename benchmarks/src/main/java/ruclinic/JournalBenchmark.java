@@ -0,0 +1,81 @@
+package ruclinic;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures sustained booking throughput with the journal off and on. With the
+ * journal on, each change waits for its record to be on disk before it is
+ * confirmed, so a single desk pays one flush per change.
+ *
+ * Each operation books an office appointment for a walk-in patient and
+ * cancels it again, which journals two changes.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g" })
+public class JournalBenchmark {
+    private static final int PRELOADED = 10000;
+    private static final int SPARE_DOCTORS = 1;
+
+    @Param({ "off", "on" })
+    public String journal;
+
+    private DataGenerator generator;
+    private ClinicManager clinic;
+    private Path journalFile;
+    private int spareNpi;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        generator = new DataGenerator();
+        clinic = generator.loadedClinic(PRELOADED, SPARE_DOCTORS, 0);
+        spareNpi = generator.doctorsFor(PRELOADED) + 1;
+        if (!journal.equals("off")) {
+            journalFile = Files.createTempFile("journal", ".log");
+            Files.delete(journalFile); // The journal writes its header to a new file
+            clinic.enableJournal(journalFile);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        clinic.closeJournal();
+        if (journalFile != null) {
+            Files.deleteIfExists(journalFile);
+        }
+    }
+
+    @Benchmark
+    public void bookAndCancel() {
+        int n = cursor++;
+        int day = n % generator.dayCount();
+        int slot = (n / generator.dayCount()) % DataGenerator.SLOTS;
+        int patient = -1 - (n & 0xffff);
+        clinic.processCommand(generator.officeBooking(day, slot, patient, spareNpi));
+        clinic.processCommand(generator.cancel(day, slot, patient));
+    }
+}
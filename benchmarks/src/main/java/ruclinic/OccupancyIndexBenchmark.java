@@ -0,0 +1,92 @@
+package ruclinic;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import util.Date;
+import util.Timeslot;
+
+/**
+ * Measures the latency of one booking (patient check, provider check, add and
+ * cancel) against a calendar that already holds the given number of
+ * appointments. The index time should stay flat as the calendar grows.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OccupancyIndexBenchmark {
+    private static final int DAYS = 125; // Weekdays in the six month window
+    private static final int SLOTS = 12;
+
+    @Param({ "100", "1000", "100000", "1000000" })
+    public int appointments;
+
+    private OccupancyIndex index;
+    private Doctor[] doctors;
+    private Date[] dates;
+    private Timeslot[] timeslots;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int doctorCount = appointments / (DAYS * SLOTS) + 1;
+        doctors = new Doctor[doctorCount];
+        for (int i = 0; i < doctorCount; i++) {
+            doctors[i] = new Doctor(new Profile("DOC" + i, "BENCH", new Date(1980, 1, 1)),
+                    Location.values()[i % Location.values().length], Specialty.FAMILY, String.valueOf(i));
+        }
+        dates = new Date[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            dates[i] = new Date(2030, 1 + i / 28, 1 + i % 28);
+        }
+        timeslots = new Timeslot[SLOTS];
+        for (int i = 0; i < SLOTS; i++) {
+            timeslots[i] = Timeslot.fromIndex(i + 1);
+        }
+
+        index = new OccupancyIndex();
+        for (int i = 0; i < appointments; i++) {
+            index.add(appointment(i));
+        }
+    }
+
+    @Benchmark
+    public boolean bookAndCancel() {
+        // Probe keys past the filled range so the calendar size stays fixed
+        int i = appointments + (cursor++ & 1023);
+        Appointment appointment = appointment(i);
+        boolean conflict = index.isPatientBooked(appointment.getPatient().getProfile(), appointment.getDate(),
+                appointment.getTimeslot())
+                || index.isProviderBooked(appointment.getProvider(), appointment.getDate(),
+                        appointment.getTimeslot());
+        index.add(appointment);
+        index.remove(appointment);
+        return conflict;
+    }
+
+    private Appointment appointment(int i) {
+        int slot = i % SLOTS;
+        int day = (i / SLOTS) % DAYS;
+        Doctor doctor = doctors[(i / (SLOTS * DAYS)) % doctors.length];
+        Person patient = new Person(new Profile("P" + i, "BENCH", new Date(1990, 1 + i % 12, 1 + i % 28)));
+        return new Appointment(dates[day], timeslots[slot], patient, doctor);
+    }
+}
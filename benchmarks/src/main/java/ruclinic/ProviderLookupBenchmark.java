@@ -0,0 +1,92 @@
+package ruclinic;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import util.Date;
+
+/**
+ * Compares the NPI lookup of the provider registry with the linear scan over a
+ * list of providers that ClinicManager used before.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProviderLookupBenchmark {
+    @Param({ "10", "1000", "10000", "100000" })
+    public int providers;
+
+    private ProviderRegistry registry;
+    private util.List<Provider> list;
+    private String[] npis;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        registry = new ProviderRegistry();
+        list = new util.List<>();
+        npis = new String[providers];
+        Location[] locations = Location.values();
+        Specialty[] specialties = Specialty.values();
+        for (int i = 0; i < providers; i++) {
+            Profile profile = new Profile("FIRST" + i, "LAST" + i, new Date(1980, 1 + i % 12, 1 + i % 28));
+            Provider provider;
+            if (i % 3 == 2) {
+                provider = new Technician(profile, locations[i % locations.length], 100 + i % 50);
+            } else {
+                npis[i] = String.valueOf(i);
+                provider = new Doctor(profile, locations[i % locations.length],
+                        specialties[i % specialties.length], npis[i]);
+            }
+            registry.register(provider);
+            list.add(provider);
+        }
+    }
+
+    private String nextNpi() {
+        // Walk the doctors so hits are spread over the whole roster
+        int i = cursor;
+        cursor = (cursor + 7) % providers;
+        while (npis[i] == null) {
+            i = (i + 1) % providers;
+        }
+        return npis[i];
+    }
+
+    @Benchmark
+    public Provider registryLookup() {
+        return registry.findDoctorByNpi(nextNpi());
+    }
+
+    @Benchmark
+    public Provider linearScan() {
+        String npi = nextNpi();
+        for (Provider provider : list) {
+            if (provider instanceof Doctor) {
+                Doctor doctor = (Doctor) provider;
+                if (doctor.getNpi().equals(npi)) {
+                    return doctor;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,97 @@
+package util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures util.List add, remove and contains at several list sizes, and the
+ * bulk operations: addAll into a presized list and removeIf of every other
+ * element. The stream benchmarks sum the list sequentially and in parallel.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListBenchmark {
+    @Param({ "1000", "100000", "1000000" })
+    public int size;
+
+    private List<Integer> list;
+    private Integer[] values;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        values = new Integer[size];
+        list = new List<>();
+        for (int i = 0; i < size; i++) {
+            values[i] = i;
+            list.add(values[i]);
+        }
+    }
+
+    @Benchmark
+    public List<Integer> addFromEmpty() {
+        List<Integer> filled = new List<>();
+        for (int i = 0; i < size; i++) {
+            filled.add(values[i]);
+        }
+        return filled;
+    }
+
+    @Benchmark
+    public List<Integer> addAllPresized() {
+        List<Integer> filled = new List<>(size);
+        filled.addAll(list);
+        return filled;
+    }
+
+    @Benchmark
+    public List<Integer> copyAndRemoveHalf() {
+        List<Integer> copy = new List<>(size);
+        copy.addAll(list);
+        copy.removeIf(value -> (value & 1) == 0);
+        return copy;
+    }
+
+    @Benchmark
+    public long streamSum() {
+        return list.stream().mapToLong(Integer::longValue).sum();
+    }
+
+    @Benchmark
+    public long parallelStreamSum() {
+        return list.parallelStream().mapToLong(Integer::longValue).sum();
+    }
+
+    @Benchmark
+    public boolean containsMiddle() {
+        return list.contains(values[size / 2]);
+    }
+
+    @Benchmark
+    public void removeAndAddBack() {
+        // Remove an element spread over the list and append it again
+        Integer value = values[cursor];
+        cursor = (cursor + 7919) % size;
+        list.remove(value);
+        list.add(value);
+    }
+}
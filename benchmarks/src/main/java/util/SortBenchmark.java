@@ -0,0 +1,99 @@
+package util;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ruclinic.Appointment;
+import ruclinic.DataGenerator;
+import ruclinic.Doctor;
+import ruclinic.Location;
+import ruclinic.Person;
+import ruclinic.Profile;
+import ruclinic.Specialty;
+
+/**
+ * Measures the appointment sorts of util.Sort on shuffled calendars.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class SortBenchmark {
+    @Param({ "1000", "100000", "1000000" })
+    public int size;
+
+    private Appointment[] shuffled;
+    private List<Appointment> list;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() throws IOException {
+        DataGenerator generator = new DataGenerator();
+        int days = generator.dayCount();
+        Location[] locations = Location.values();
+        Doctor[] doctors = new Doctor[generator.doctorsFor(size)];
+        for (int i = 0; i < doctors.length; i++) {
+            doctors[i] = new Doctor(new Profile("DOC" + i, "LAST" + (i * 31 % 97), new Date(1970, 1, 1)),
+                    locations[i % locations.length], Specialty.FAMILY, String.valueOf(i));
+        }
+        shuffled = new Appointment[size];
+        java.util.Random random = new java.util.Random(42);
+        for (int i = 0; i < size; i++) {
+            int slot = i % DataGenerator.SLOTS;
+            int day = (i / DataGenerator.SLOTS) % days;
+            Person patient = new Person(new Profile("P" + i, "PATIENT", new Date(1990, 1, 1)));
+            shuffled[i] = new Appointment(new Date(2030, 1 + day / 28 % 12, 1 + day % 28),
+                    Timeslot.fromString(String.valueOf(slot + 1)), patient,
+                    doctors[i / (DataGenerator.SLOTS * days)]);
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Appointment swap = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = swap;
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        list = new List<>();
+        for (Appointment appointment : shuffled) {
+            list.add(appointment);
+        }
+    }
+
+    @Benchmark
+    public List<Appointment> byCountyDateTime() {
+        Sort.appointmentByCounty(list);
+        return list;
+    }
+
+    @Benchmark
+    public List<Appointment> byDateTimeProvider() {
+        Sort.appointmentByDateTimeAndProvider(list);
+        return list;
+    }
+
+    @Benchmark
+    public List<Appointment> byPatient() {
+        Sort.appointment(list, 'p');
+        return list;
+    }
+}
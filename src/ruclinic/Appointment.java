@@ -17,6 +17,7 @@ public class Appointment implements Comparable<Appointment> {
     protected Timeslot timeslot; // Protected
     protected Person patient; // Changed from Profile to Person, Protected
     protected Provider provider; // Can be either a Doctor or Technician, Protected
+    private int hash; // Hash of the fields compared by equals(), updated by the setters
 
     /**
      * Constructs an Appointment with the specified date, timeslot, patient, and
@@ -33,6 +34,7 @@ public class Appointment implements Comparable<Appointment> {
         this.timeslot = timeslot;
         this.patient = patient;
         this.provider = provider;
+        this.hash = hash(date, timeslot, patient, provider);
     }
 
     /**
@@ -57,6 +59,26 @@ public class Appointment implements Comparable<Appointment> {
                 provider.equals(that.provider); // Compare the provider as well
     }
 
+    /**
+     * Returns a hash code for the appointment, consistent with equals().
+     * It is computed from the date, timeslot, patient and provider when they
+     * are set, so an appointment kept in a hashed collection must not be moved
+     * to another timeslot or provider.
+     *
+     * @return the hash code of the appointment
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    private static int hash(Date date, Timeslot timeslot, Person patient, Provider provider) {
+        int h = date.hashCode();
+        h = 31 * h + timeslot.hashCode();
+        h = 31 * h + patient.hashCode();
+        return 31 * h + provider.hashCode();
+    }
+
     /**
      * Compares this appointment to another appointment to determine their ordering.
      * Appointments are ordered first by date, then by timeslot, and finally by
@@ -134,10 +156,12 @@ public class Appointment implements Comparable<Appointment> {
 
     public void setTimeSlot(Timeslot timeslot) {
         this.timeslot = timeslot;
+        this.hash = hash(date, timeslot, patient, provider);
     }
 
     public void setProvider(Provider provider) {
         this.provider = provider;
+        this.hash = hash(date, timeslot, patient, provider);
     }
 
     /**
@@ -0,0 +1,131 @@
+package ruclinic;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Running ledger of what each patient owes for the visits not yet billed,
+ * kept up to date as appointments are booked and cancelled so billing
+ * statements are read without going over the calendar.
+ *
+ * Accounts are keyed by the patient's profile and kept in profile order (last
+ * name, first name, date of birth), so the statements are listed in order in
+ * O(patients). Settling the ledger bills every account and empties it; a visit
+ * cancelled after it was billed is credited back on the next statement.
+ *
+ * Accounts are replaced as a whole on every change, so the ledger can be
+ * updated by concurrent bookings.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+public class BillingLedger implements Iterable<BillingLedger.Account> {
+    private ConcurrentSkipListMap<Profile, Account> accounts; // Open accounts in profile order
+
+    /**
+     * Constructs an empty ledger.
+     */
+    public BillingLedger() {
+        this.accounts = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Charges the patient of a booked appointment for the visit.
+     *
+     * @param appointment the appointment that was added to the calendar.
+     */
+    public void charge(Appointment appointment) {
+        post(appointment.getPatient().getProfile(), 1, appointment.getProvider().rate());
+    }
+
+    /**
+     * Credits the patient of a cancelled appointment for the visit.
+     *
+     * @param appointment the appointment that was removed from the calendar.
+     */
+    public void refund(Appointment appointment) {
+        post(appointment.getPatient().getProfile(), -1, -appointment.getProvider().rate());
+    }
+
+    /**
+     * Opens an account with a balance, as read from a snapshot.
+     *
+     * @param patient the patient's profile.
+     * @param visits  the number of visits not yet billed.
+     * @param due     the amount due in dollars.
+     */
+    public void restore(Profile patient, int visits, long due) {
+        post(patient, visits, due);
+    }
+
+    /**
+     * Bills every account, leaving the ledger empty.
+     */
+    public void settle() {
+        accounts.clear();
+    }
+
+    /**
+     * Gets the number of open accounts.
+     *
+     * @return The number of accounts.
+     */
+    public int size() {
+        return accounts.size();
+    }
+
+    /**
+     * Checks if every account is settled.
+     *
+     * @return true if the ledger is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return accounts.isEmpty();
+    }
+
+    /**
+     * Returns the open accounts in profile order.
+     *
+     * @return An iterator over the accounts.
+     */
+    @Override
+    public Iterator<Account> iterator() {
+        return accounts.values().iterator();
+    }
+
+    // An account with nothing left to bill is closed
+    private void post(Profile patient, int visits, long amount) {
+        accounts.compute(patient, (profile, account) -> {
+            int newVisits = (account == null ? 0 : account.visits) + visits;
+            long newDue = (account == null ? 0 : account.due) + amount;
+            return newVisits == 0 && newDue == 0 ? null : new Account(profile, newVisits, newDue);
+        });
+    }
+
+    /**
+     * The balance of one patient.
+     */
+    public static final class Account {
+        private final Profile patient;
+        private final int visits;
+        private final long due;
+
+        Account(Profile patient, int visits, long due) {
+            this.patient = patient;
+            this.visits = visits;
+            this.due = due;
+        }
+
+        public Profile getPatient() {
+            return patient;
+        }
+
+        public int getVisits() {
+            return visits;
+        }
+
+        public long getDue() {
+            return due;
+        }
+    }
+}
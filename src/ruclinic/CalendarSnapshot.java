@@ -0,0 +1,362 @@
+package ruclinic;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import util.CalendarService;
+import util.Date;
+import util.SortedView;
+import util.Timeslot;
+
+/**
+ * Binary snapshot of the appointment calendar, so the clinic manager can
+ * restart without replaying its commands.
+ *
+ * The snapshot holds the appointments in calendar order, each packed in a
+ * fixed size record of provider id, patient id, epoch day and slot, with the
+ * patient profiles stored once in a table. Providers are referenced by their
+ * registry id, so a snapshot can only be loaded with the same provider roster;
+ * a fingerprint of the roster is stored to check this. The technician
+ * rotation position is saved too, and so is the order of each sorted view of
+ * the calendar, so the views are rebuilt without sorting, and the open
+ * accounts of the billing ledger.
+ *
+ * Layout, big-endian:
+ * header: magic, version, sequence, roster fingerprint, provider count,
+ * rotation position, last assigned technician id
+ * patients: count, then per patient first name, last name (length and UTF-8
+ * bytes) and date of birth as an epoch day
+ * appointments: count, then per appointment epoch day, provider id, patient id
+ * and one byte with the slot in the low four bits and the kind in the high
+ * four bits (0 for office, 1 + the Radiology ordinal for imaging)
+ * views: count, then per view the appointment numbers in view order
+ * ledger: count, then per account first name, last name, date of birth as an
+ * epoch day, visits and amount due
+ * trailer: CRC32 of everything before it
+ *
+ * Snapshots are written to a temporary file and moved over the previous one,
+ * and read through a memory-mapped buffer.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+public class CalendarSnapshot {
+    private static final int MAGIC = 0x52554353; // "RUCS"
+    private static final short VERSION = 2;
+    private static final short VERSION_WITHOUT_LEDGER = 1; // Still read, the ledger is rebuilt
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int OFFICE = 0; // Kind of an office appointment
+    private static final Radiology[] ROOMS = Radiology.values();
+
+    private final util.List<Appointment> appointments;
+    private final util.List<util.List<Appointment>> views;
+    private final util.List<BillingLedger.Account> accounts;
+    private final long sequence;
+    private final int rotationPosition;
+    private final int lastAssignedId;
+
+    private CalendarSnapshot(util.List<Appointment> appointments, util.List<util.List<Appointment>> views,
+            util.List<BillingLedger.Account> accounts, long sequence, int rotationPosition, int lastAssignedId) {
+        this.appointments = appointments;
+        this.views = views;
+        this.accounts = accounts;
+        this.sequence = sequence;
+        this.rotationPosition = rotationPosition;
+        this.lastAssignedId = lastAssignedId;
+    }
+
+    /**
+     * Writes a snapshot of the calendar, replacing the previous snapshot in a
+     * single move.
+     *
+     * @param file             the snapshot file.
+     * @param sequence         the number of changes made to the calendar so far.
+     * @param providers        the registry the provider ids come from.
+     * @param rotationPosition the technician rotation position, -1 if none.
+     * @param lastAssignedId   the id of the last assigned technician, -1 if
+     *                         none.
+     * @param ledger           the billing ledger.
+     * @param appointments     the appointments in calendar order.
+     * @param views            sorted views holding the same appointments.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    @SafeVarargs
+    public static void write(Path file, long sequence, ProviderRegistry providers, int rotationPosition,
+            int lastAssignedId, BillingLedger ledger, util.List<Appointment> appointments,
+            SortedView<Appointment>... views) throws IOException {
+        // Number the appointments and the distinct patient profiles. Profiles are
+        // interned by the patient registry, so the instance is the identity
+        int count = appointments.size();
+        IdentityHashMap<Appointment, Integer> numberOf = new IdentityHashMap<>(count);
+        int[] patientIds = new int[count];
+        util.List<Profile> patients = new util.List<>();
+        IdentityHashMap<Profile, Integer> patientIdOf = new IdentityHashMap<>();
+        for (int i = 0; i < count; i++) {
+            numberOf.put(appointments.get(i), i);
+            Profile profile = appointments.get(i).getPatient().getProfile();
+            Integer id = patientIdOf.get(profile);
+            if (id == null) {
+                id = patients.size();
+                patients.add(profile);
+                patientIdOf.put(profile, id);
+            }
+            patientIds[i] = id;
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (DataOutputStream data = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE), crc))) {
+            data.writeInt(MAGIC);
+            data.writeShort(VERSION);
+            data.writeLong(sequence);
+            data.writeLong(fingerprint(providers));
+            data.writeInt(providers.size());
+            data.writeInt(rotationPosition);
+            data.writeInt(lastAssignedId);
+
+            data.writeInt(patients.size());
+            for (Profile profile : patients) {
+                writeString(data, profile.getFirstName());
+                writeString(data, profile.getLastName());
+                data.writeInt(profile.getDob().toEpochDay());
+            }
+
+            data.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                Appointment appointment = appointments.get(i);
+                int kind = OFFICE;
+                if (appointment instanceof Imaging) {
+                    kind = 1 + ((Imaging) appointment).getRoom().ordinal();
+                }
+                data.writeInt(appointment.getDate().toEpochDay());
+                data.writeInt(providers.idOf(appointment.getProvider()));
+                data.writeInt(patientIds[i]);
+                data.writeByte(kind << 4 | appointment.getTimeslot().getIndex());
+            }
+
+            data.writeInt(views.length);
+            for (SortedView<Appointment> view : views) {
+                if (view.size() != count) {
+                    throw new IllegalArgumentException("A view does not hold the calendar.");
+                }
+                for (Appointment appointment : view) {
+                    data.writeInt(numberOf.get(appointment));
+                }
+            }
+
+            util.List<BillingLedger.Account> accounts = new util.List<>(); // Fixed while it is written
+            for (BillingLedger.Account account : ledger) {
+                accounts.add(account);
+            }
+            data.writeInt(accounts.size());
+            for (BillingLedger.Account account : accounts) {
+                writeString(data, account.getPatient().getFirstName());
+                writeString(data, account.getPatient().getLastName());
+                data.writeInt(account.getPatient().getDob().toEpochDay());
+                data.writeInt(account.getVisits());
+                data.writeLong(account.getDue());
+            }
+            data.writeInt((int) crc.getValue()); // The trailer, after the checksummed bytes
+        }
+
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a snapshot written with the same provider roster.
+     *
+     * @param file      the snapshot file.
+     * @param providers the registry to resolve the provider ids with.
+     * @param patients  the registry the patients are interned in.
+     * @param calendar  the calendar service that supplies the dates.
+     * @return the snapshot.
+     * @throws IOException if the file cannot be read, is damaged, or was
+     *                     written with another provider roster.
+     */
+    public static CalendarSnapshot read(Path file, ProviderRegistry providers, PatientRegistry patients,
+            CalendarService calendar) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            // Check the trailer before decoding anything
+            int end = buffer.limit() - Integer.BYTES;
+            if (end < 0) {
+                throw new IOException(file + " is damaged: too short.");
+            }
+            CRC32 crc = new CRC32();
+            ByteBuffer body = buffer.duplicate();
+            body.limit(end);
+            crc.update(body);
+            if (buffer.getInt(end) != (int) crc.getValue()) {
+                throw new IOException(file + " is damaged: checksum mismatch.");
+            }
+
+            int magic = buffer.getInt();
+            short version = buffer.getShort();
+            if (magic != MAGIC || version != VERSION && version != VERSION_WITHOUT_LEDGER) {
+                throw new IOException(file + " is not a calendar snapshot.");
+            }
+            long sequence = buffer.getLong();
+            if (buffer.getLong() != fingerprint(providers) || buffer.getInt() != providers.size()) {
+                throw new IOException(file + " was written for a different provider roster.");
+            }
+            int rotationPosition = buffer.getInt();
+            int lastAssignedId = buffer.getInt();
+
+            Patient[] numberedPatients = new Patient[buffer.getInt()];
+            for (int i = 0; i < numberedPatients.length; i++) {
+                String firstName = readString(buffer);
+                String lastName = readString(buffer);
+                numberedPatients[i] = patients.intern(firstName, lastName, Date.ofEpochDay(buffer.getInt()));
+            }
+
+            int count = buffer.getInt();
+            Appointment[] numbered = new Appointment[count];
+            util.List<Appointment> appointments = new util.List<>(count);
+            for (int i = 0; i < count; i++) {
+                Date date = calendar.date(buffer.getInt());
+                Provider provider = providers.get(buffer.getInt());
+                Patient patient = numberedPatients[buffer.getInt()];
+                int packed = buffer.get() & 0xff;
+                Timeslot timeslot = Timeslot.fromIndex(packed & 0x0f);
+                int kind = packed >>> 4;
+                if (kind == OFFICE) {
+                    numbered[i] = new Appointment(date, timeslot, patient, provider);
+                } else {
+                    numbered[i] = new Imaging(date, timeslot, patient, provider, ROOMS[kind - 1]);
+                }
+                appointments.add(numbered[i]);
+            }
+
+            int viewCount = buffer.getInt();
+            util.List<util.List<Appointment>> views = new util.List<>();
+            for (int v = 0; v < viewCount; v++) {
+                util.List<Appointment> view = new util.List<>(count);
+                for (int i = 0; i < count; i++) {
+                    view.add(numbered[buffer.getInt()]);
+                }
+                views.add(view);
+            }
+
+            util.List<BillingLedger.Account> accounts = null;
+            if (version != VERSION_WITHOUT_LEDGER) {
+                accounts = new util.List<>();
+                int accountCount = buffer.getInt();
+                for (int i = 0; i < accountCount; i++) {
+                    String firstName = readString(buffer);
+                    String lastName = readString(buffer);
+                    Profile patient = patients.intern(firstName, lastName, Date.ofEpochDay(buffer.getInt()))
+                            .getProfile();
+                    int visits = buffer.getInt();
+                    accounts.add(new BillingLedger.Account(patient, visits, buffer.getLong()));
+                }
+            }
+            return new CalendarSnapshot(appointments, views, accounts, sequence, rotationPosition,
+                    lastAssignedId);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException(file + " is damaged: " + e, e);
+        }
+    }
+
+    /**
+     * Gets the appointments of the snapshot in calendar order.
+     *
+     * @return the appointments.
+     */
+    public util.List<Appointment> getAppointments() {
+        return appointments;
+    }
+
+    /**
+     * Gets the appointments in the order of one of the sorted views passed to
+     * write.
+     *
+     * @param view the position of the view in the write call.
+     * @return the appointments in view order.
+     */
+    public util.List<Appointment> getView(int view) {
+        return views.get(view);
+    }
+
+    /**
+     * Gets the open accounts of the billing ledger.
+     *
+     * @return the accounts in profile order, or null if the snapshot was
+     *         written before the ledger was saved.
+     */
+    public util.List<BillingLedger.Account> getAccounts() {
+        return accounts;
+    }
+
+    /**
+     * Gets the number of changes made to the calendar when the snapshot was
+     * written.
+     *
+     * @return the sequence number.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getRotationPosition() {
+        return rotationPosition;
+    }
+
+    public int getLastAssignedId() {
+        return lastAssignedId;
+    }
+
+    /**
+     * Hashes the roster in id order, to tell if the provider ids of a snapshot
+     * or a journal still point to the same providers.
+     */
+    static long fingerprint(ProviderRegistry providers) {
+        long hash = 17;
+        for (int id = 0; id < providers.size(); id++) {
+            Provider provider = providers.get(id);
+            Profile profile = provider.getProfile();
+            String detail = provider instanceof Doctor ? ((Doctor) provider).getNpi()
+                    : String.valueOf(((Technician) provider).rate());
+            hash = 31 * hash + profile.getFirstName().hashCode();
+            hash = 31 * hash + profile.getLastName().hashCode();
+            hash = 31 * hash + profile.getDob().toEpochDay();
+            hash = 31 * hash + provider.getLocation().ordinal();
+            hash = 31 * hash + detail.hashCode();
+        }
+        return hash;
+    }
+
+    private static void writeString(DataOutputStream data, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        data.writeShort(bytes.length);
+        data.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xffff];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
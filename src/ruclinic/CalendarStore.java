@@ -0,0 +1,279 @@
+package ruclinic;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import util.Date;
+import util.Timeslot;
+
+/**
+ * The appointments of the calendar, kept in one bucket per booked day.
+ *
+ * Each day holds the appointments of each timeslot, in the order they were
+ * booked. Appointments are also indexed by patient name, ignoring case, date
+ * and timeslot, so the appointment a cancel or reschedule applies to is found
+ * with one lookup. A day is created by its first booking and dropped with its
+ * last one, so memory grows with the booked days, not with the number of
+ * bookings ever made. The booking conflicts are checked by the OccupancyIndex.
+ *
+ * The changes to a day are made one at a time and the arrays are read
+ * without locking, so the store can be shared by concurrent bookings.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+public class CalendarStore implements Iterable<Appointment> {
+    private static final Appointment[] NONE = new Appointment[0];
+
+    private ConcurrentHashMap<Integer, Day> days; // Bucket of each booked day, by epoch day
+    private ConcurrentHashMap<NameKey, Appointment[]> byName; // Appointments of a patient name, by booking
+    private AtomicInteger size; // Appointments in all the days
+
+    /**
+     * Constructs an empty store.
+     */
+    public CalendarStore() {
+        this.days = new ConcurrentHashMap<>();
+        this.byName = new ConcurrentHashMap<>();
+        this.size = new AtomicInteger();
+    }
+
+    /**
+     * Adds an appointment to the bucket of its day, after the appointments
+     * already booked at its timeslot.
+     *
+     * @param appointment the appointment to add.
+     */
+    public void add(Appointment appointment) {
+        days.compute(appointment.getDate().toEpochDay(), (epochDay, day) -> {
+            if (day == null) {
+                day = new Day();
+            }
+            day.add(appointment);
+            NameKey key = nameKey(appointment);
+            Appointment[] booked = byName.getOrDefault(key, NONE);
+            Appointment[] grown = Arrays.copyOf(booked, booked.length + 1);
+            grown[booked.length] = appointment;
+            byName.put(key, grown);
+            size.incrementAndGet();
+            return day;
+        });
+    }
+
+    /**
+     * Removes an appointment from the bucket of its day.
+     *
+     * @param appointment the appointment to remove.
+     * @return true if the appointment was in the store, false otherwise.
+     */
+    public boolean remove(Appointment appointment) {
+        boolean[] removed = new boolean[1];
+        days.computeIfPresent(appointment.getDate().toEpochDay(), (epochDay, day) -> {
+            removed[0] = day.remove(appointment);
+            if (removed[0]) {
+                NameKey key = nameKey(appointment);
+                Appointment[] shrunk = without(byName.get(key), appointment);
+                if (shrunk.length == 0) {
+                    byName.remove(key);
+                } else {
+                    byName.put(key, shrunk);
+                }
+                size.decrementAndGet();
+            }
+            return day.count == 0 ? null : day; // The last appointment drops the day
+        });
+        return removed[0];
+    }
+
+    /**
+     * Finds the first appointment booked for a patient, matched by name
+     * ignoring case, at a date and timeslot.
+     *
+     * @param firstName the patient's first name.
+     * @param lastName  the patient's last name.
+     * @param date      the date of the appointment.
+     * @param timeslot  the timeslot of the appointment, null if it was not valid.
+     * @return the appointment, or null if there is none.
+     */
+    public Appointment find(String firstName, String lastName, Date date, Timeslot timeslot) {
+        if (timeslot == null) {
+            return null; // No appointment at an invalid timeslot
+        }
+        Appointment[] booked = byName.get(new NameKey(firstName, lastName, date, timeslot.getIndex()));
+        return booked == null ? null : booked[0];
+    }
+
+    /**
+     * Removes every appointment.
+     */
+    public void clear() {
+        days.clear();
+        byName.clear();
+        size.set(0);
+    }
+
+    /**
+     * Gets the number of appointments.
+     *
+     * @return The number of appointments.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Checks if the store has no appointments.
+     *
+     * @return true if the store is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    /**
+     * Returns the appointments by date, timeslot and then in the order they
+     * were booked. Changes made during the iteration may not be seen.
+     *
+     * @return An iterator over the appointments.
+     */
+    @Override
+    public Iterator<Appointment> iterator() {
+        int[] booked = new int[days.size()];
+        int count = 0;
+        for (Integer epochDay : days.keySet()) {
+            if (count == booked.length) {
+                booked = Arrays.copyOf(booked, count * 2 + 1);
+            }
+            booked[count++] = epochDay;
+        }
+        Arrays.sort(booked, 0, count);
+        util.List<Appointment> appointments = new util.List<>(size.get());
+        for (int i = 0; i < count; i++) {
+            Day day = days.get(booked[i]);
+            if (day != null) {
+                day.addTo(appointments);
+            }
+        }
+        return appointments.iterator();
+    }
+
+    private static NameKey nameKey(Appointment appointment) {
+        Person patient = appointment.getPatient();
+        return new NameKey(patient.getFirstName(), patient.getLastName(), appointment.getDate(),
+                appointment.getTimeslot().getIndex());
+    }
+
+    // Copy of a booking-ordered array without one appointment, found by identity
+    private static Appointment[] without(Appointment[] booked, Appointment appointment) {
+        int at = 0;
+        while (at < booked.length && booked[at] != appointment) {
+            at++;
+        }
+        if (at == booked.length) {
+            return booked;
+        }
+        if (booked.length == 1) {
+            return NONE;
+        }
+        Appointment[] shrunk = new Appointment[booked.length - 1];
+        System.arraycopy(booked, 0, shrunk, 0, at);
+        System.arraycopy(booked, at + 1, shrunk, at, shrunk.length - at);
+        return shrunk;
+    }
+
+    /**
+     * Patient name, compared ignoring case, date and timeslot of an
+     * appointment.
+     */
+    private static final class NameKey {
+        private final String firstName;
+        private final String lastName;
+        private final Date date;
+        private final int slot;
+        private final int hash;
+
+        NameKey(String firstName, String lastName, Date date, int slot) {
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.date = date;
+            this.slot = slot;
+            int h = foldedHash(firstName);
+            h = 31 * h + foldedHash(lastName);
+            h = 31 * h + date.hashCode();
+            this.hash = 31 * h + slot;
+        }
+
+        // Same for any two names equalsIgnoreCase() matches
+        private static int foldedHash(String name) {
+            int h = 0;
+            for (int i = 0; i < name.length(); i++) {
+                h = 31 * h + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+            }
+            return h;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof NameKey))
+                return false;
+            NameKey that = (NameKey) obj;
+            return slot == that.slot && date.equals(that.date)
+                    && firstName.equalsIgnoreCase(that.firstName) && lastName.equalsIgnoreCase(that.lastName);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * The bucket of one day. It is only changed inside a compute() of its
+     * key, one change at a time.
+     */
+    private static final class Day {
+        private final AtomicReferenceArray<Appointment[]> slots; // Appointments of each timeslot, by booking
+        private int count; // Appointments of the day
+
+        Day() {
+            this.slots = new AtomicReferenceArray<>(Timeslot.COUNT);
+            for (int slot = 0; slot < Timeslot.COUNT; slot++) {
+                slots.set(slot, NONE);
+            }
+        }
+
+        void add(Appointment appointment) {
+            int slot = appointment.getTimeslot().getIndex() - 1;
+            Appointment[] booked = slots.get(slot);
+            Appointment[] grown = Arrays.copyOf(booked, booked.length + 1); // Readers keep the old array
+            grown[booked.length] = appointment;
+            slots.set(slot, grown);
+            count++;
+        }
+
+        boolean remove(Appointment appointment) {
+            int slot = appointment.getTimeslot().getIndex() - 1;
+            Appointment[] booked = slots.get(slot);
+            Appointment[] shrunk = without(booked, appointment);
+            if (shrunk == booked) {
+                return false;
+            }
+            slots.set(slot, shrunk);
+            count--;
+            return true;
+        }
+
+        void addTo(util.List<Appointment> appointments) {
+            for (int slot = 0; slot < Timeslot.COUNT; slot++) {
+                for (Appointment appointment : slots.get(slot)) {
+                    appointments.add(appointment);
+                }
+            }
+        }
+    }
+}
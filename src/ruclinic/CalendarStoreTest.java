@@ -0,0 +1,66 @@
+package ruclinic;
+
+import java.util.Iterator;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import util.Date;
+import util.Timeslot;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalendarStoreTest {
+    private CalendarStore store;
+    private Doctor doctor;
+    private Technician technician;
+    private Date day;
+
+    @BeforeEach
+    void setUp() {
+        doctor = new Doctor(new Profile("Andrew", "Patel", new Date(1975, 3, 2)), Location.BRIDGEWATER,
+                Specialty.FAMILY, "01");
+        technician = new Technician(new Profile("Alice", "Smith", new Date(1990, 10, 12)), Location.EDISON, 120);
+        store = new CalendarStore();
+        day = new Date(2024, 11, 4);
+    }
+
+    private Patient patient(String firstName, int year) {
+        return new Patient(new Profile(firstName, "Doe", new Date(year, 5, 15)));
+    }
+
+    @Test
+    void findsFirstBookedAtSlot() {
+        Appointment first = new Appointment(day, Timeslot.fromIndex(3), patient("John", 1990), doctor);
+        Imaging second = new Imaging(day, Timeslot.fromIndex(3), patient("JOHN", 1980), technician, Radiology.XRAY);
+        store.add(first);
+        store.add(second);
+        assertSame(first, store.find("john", "DOE", day, Timeslot.fromIndex(3)));
+        assertNull(store.find("john", "doe", day, Timeslot.fromIndex(4)));
+
+        assertTrue(store.remove(first));
+        assertSame(second, store.find("john", "doe", day, Timeslot.fromIndex(3)));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void listsByDayAndTimeslot() {
+        Appointment late = new Appointment(day, Timeslot.fromIndex(12), patient("John", 1990), doctor);
+        Appointment next = new Appointment(new Date(2024, 11, 5), Timeslot.fromIndex(1), patient("Jim", 1990),
+                doctor);
+        Appointment early = new Appointment(day, Timeslot.fromIndex(1), patient("Jane", 1990), doctor);
+        store.add(late);
+        store.add(next);
+        store.add(early);
+        Iterator<Appointment> it = store.iterator();
+        assertSame(early, it.next());
+        assertSame(late, it.next());
+        assertSame(next, it.next());
+
+        store.remove(late);
+        store.remove(early);
+        store.remove(next);
+        assertFalse(store.remove(early), "An appointment should only be removed once.");
+        assertTrue(store.isEmpty());
+        assertFalse(store.iterator().hasNext());
+    }
+}
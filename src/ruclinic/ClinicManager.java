@@ -1,16 +1,24 @@
 package ruclinic;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.Calendar;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-import util.CircularLinkedList;
+import util.CalendarService;
 import util.Date;
 import util.Sort;
+import util.SortedView;
 import util.TechnicianSchedule;
+import util.TechnicianRotation;
 import util.Timeslot;
 
 /**
@@ -29,21 +37,94 @@ import util.Timeslot;
  * - PS (Display billing statements)
  * - Q (Quit the program)
  * 
+ * Commands can be processed by several threads at once, one per front desk.
+ * Bookings, cancellations and reschedulings share the calendar: each one locks
+ * the patient, by name, and then the location of the provider it checks, so
+ * bookings at different locations do not wait for each other while a slot is
+ * never booked twice. Imaging bookings claim technicians from the rotation
+ * without locking it. Billing and snapshots lock the whole calendar.
+ * 
  * @author Paldeep Sekhon
  * @author Aditya Ponni
  */
 public class ClinicManager {
-    private util.List<Appointment> appointments; // List to hold all appointments
-    private util.List<Provider> providers; // Single list for all providers
-    private CircularLinkedList technicianList;
+    private static final int PATIENT_STRIPES = 64; // Power of two
+
+    private CalendarStore appointments; // All appointments, by day and timeslot
+    private ProviderRegistry providers; // Indexed registry of all providers
+    private PatientRegistry patients; // One Patient instance for every patient seen
+    private TechnicianRotation technicianList; // Round-robin rotation for imaging appointments
+    private ProviderLoader providerLoader; // Loads the roster, keeps the load time
+    private OccupancyIndex occupancy; // Booked (date, timeslot) keys for the conflict checks
+    private BillingLedger ledger; // What each patient owes for the visits not yet billed
+    private ProviderCredits credits; // What each provider has earned from the calendar
+    private boolean keepCalendarOnBilling; // PS settles the ledger but keeps the calendar
+    private SortedView<Appointment> byDateTimeProvider; // Calendar ordered for PA
+    private SortedView<Appointment> byCountyDateTime; // Calendar ordered for PL, PO and PI
+    private SortedView<Appointment> byPatient; // Calendar ordered for PP
+    private PrintWriter out; // Destination of all command output
+    private ThreadLocal<CommandParser> parsers; // Reused to decode every command line of a thread
+    private CalendarService calendar; // Today, the booking window and its dates
+    private long sequence; // Number of changes made to the calendar
+    private Path snapshotFile; // Where the calendar is saved, null if it is not
+    private int snapshotInterval; // Changes between two snapshots
+    private CommandJournal journal; // Changes since the last snapshot, null if they are not journaled
+    private ReentrantReadWriteLock calendarLock; // Shared by the commands, exclusive for billing and snapshots
+    private ReentrantLock[] patientLocks; // Striped by patient name
+    private ReentrantLock[] locationLocks; // One per location, for its providers and rooms
+    private Object changeLock; // Numbers the changes in the order they are journaled
+    private AtomicBoolean snapshotDue; // Set by a change when a snapshot is due
 
     // Constructor
     public ClinicManager() {
-        this.appointments = new util.List<>(); // Custom List for appointments
-        this.providers = new util.List<>(); // Single Custom List for all providers
-        this.technicianList = new CircularLinkedList();
+        this("providers.txt");
+    }
+
+    /**
+     * Constructs a clinic manager with the providers listed in the given file.
+     *
+     * @param providerFile the path of the provider roster.
+     */
+    public ClinicManager(String providerFile) {
+        this(providerFile, new PrintWriter(System.out, true));
+    }
 
-        loadProviders(); // Load providers from file on startup
+    /**
+     * Constructs a clinic manager with the providers listed in the given file
+     * that writes its output to the given writer.
+     *
+     * @param providerFile the path of the provider roster.
+     * @param out          the writer for all command output.
+     */
+    public ClinicManager(String providerFile, PrintWriter out) {
+        this.out = out;
+        this.parsers = ThreadLocal.withInitial(CommandParser::new);
+        this.calendar = CalendarService.getDefault();
+        this.providers = new ProviderRegistry(); // Registry indexed by NPI, location and specialty
+        this.appointments = new CalendarStore();
+        this.patients = new PatientRegistry();
+        this.technicianList = new TechnicianRotation();
+        this.providerLoader = new ProviderLoader();
+        this.occupancy = new OccupancyIndex();
+        this.ledger = new BillingLedger();
+        this.byDateTimeProvider = new SortedView<>(Sort.BY_DATE_TIME_PROVIDER);
+        this.byCountyDateTime = new SortedView<>(Sort.BY_COUNTY_DATE_TIME);
+        this.byPatient = new SortedView<>(Sort.BY_PATIENT_DATE_TIME);
+        this.calendarLock = new ReentrantReadWriteLock();
+        this.patientLocks = new ReentrantLock[PATIENT_STRIPES];
+        for (int i = 0; i < PATIENT_STRIPES; i++) {
+            patientLocks[i] = new ReentrantLock();
+        }
+        this.locationLocks = new ReentrantLock[Location.values().length];
+        for (int i = 0; i < locationLocks.length; i++) {
+            locationLocks[i] = new ReentrantLock();
+        }
+        this.changeLock = new Object();
+        this.snapshotDue = new AtomicBoolean();
+
+        loadProviders(providerFile); // Load providers from file on startup
+        occupancy.indexTechnicians(technicianList); // Number the technicians for the imaging bitsets
+        this.credits = new ProviderCredits(providers); // One counter per loaded provider
         // technicianList = new List<>(); // Initialize the technician list
         // initializeTechnicians(); // Add technicians when the clinic manager is
         // created
@@ -52,66 +133,13 @@ public class ClinicManager {
     /**
      * Method to load the providers from the file
      */
-    private void loadProviders() {
+    private void loadProviders(String providerFile) {
         try {
-            File file = new File("providers.txt");
-            Scanner scanner = new Scanner(file);
-
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine().trim();
-                if (line.isEmpty())
-                    continue; // Ignore empty lines
-
-                String[] tokens = line.split("\\s+"); // Split by whitespace
-
-                if (tokens[0].equalsIgnoreCase("D")) {
-                    // Doctor
-                    String firstName = tokens[1];
-                    String lastName = tokens[2];
-                    String dob = tokens[3]; // format: MM/DD/YYYY
-                    Location location = Location.valueOf(tokens[4].toUpperCase()); // Using the enum
-                    Specialty specialty = Specialty.valueOf(tokens[5].toUpperCase()); // Get specialty enum
-                    String npi = tokens[6];
-
-                    // Parse the date from the string
-                    String[] dobParts = dob.split("/");
-                    int month = Integer.parseInt(dobParts[0]);
-                    int day = Integer.parseInt(dobParts[1]);
-                    int year = Integer.parseInt(dobParts[2]);
-
-                    Profile profile = new Profile(firstName, lastName, new Date(year, month, day));
-                    // Create Doctor instance using the Specialty enum
-                    Provider doctor = new Doctor(profile, location, specialty, npi);
-                    providers.add(doctor); // Add to the list of providers
-
-                } else if (tokens[0].equalsIgnoreCase("T")) {
-                    // Technician
-                    String firstName = tokens[1];
-                    String lastName = tokens[2];
-                    String dob = tokens[3]; // format: MM/DD/YYYY
-                    Location location = Location.valueOf(tokens[4].toUpperCase()); // Using the enum
-                    int ratePerVisit = Integer.parseInt(tokens[5]);
-
-                    // Parse the date from the string
-                    String[] dobParts = dob.split("/");
-                    int month = Integer.parseInt(dobParts[0]);
-                    int day = Integer.parseInt(dobParts[1]);
-                    int year = Integer.parseInt(dobParts[2]);
-
-                    Profile profile = new Profile(firstName, lastName, new Date(year, month, day));
-                    Technician technician = new Technician(profile, location, ratePerVisit); // Create Technician
-                                                                                             // instance
-                    providers.add(technician); // Add to the list of providers
-                    technicianList.addTechnician(technician);
-                }
-            }
-
-            scanner.close();
-
-        } catch (FileNotFoundException e) {
-            System.out.println("Error: providers.txt not found.");
+            providerLoader.load(Paths.get(providerFile), providers, technicianList);
+        } catch (NoSuchFileException e) {
+            out.println("Error: " + providerFile + " not found.");
         } catch (Exception e) {
-            System.out.println("Error loading providers: " + e.getMessage());
+            out.println("Error loading providers: " + e.getMessage());
         }
     }
 
@@ -124,11 +152,7 @@ public class ClinicManager {
      */
     public void run() {
         Scanner scanner = new Scanner(System.in);
-        System.out.println("Providers loaded to the list okok.");
-        listProviders(); // Display providers at startup
-        System.out.println("Rotation list for the technicians.");
-        technicianList.printTechnicianList();
-        System.out.printf("%nClinic Manager is running...%n%n%n");
+        printStartup();
 
         boolean running = true;
         while (running) {
@@ -136,228 +160,647 @@ public class ClinicManager {
             if (command.isEmpty())
                 continue;
 
-            // Process the command
-            switch (command.split(",")[0]) { // Use the original command without case conversion
-                case "D": // Schedule office appointment
-                    processOfficeAppointment(command);
-                    break;
-                case "T": // Schedule imaging appointment
-                    processImagingAppointment(command);
-                    break;
-                case "C": // Cancel appointment
-                    processCancelAppointment(command);
-                    break;
-                case "R": // Reschedule appointment
-                    processRescheduleAppointment(command);
-                    break;
-                case "PA": // List providers by profile
-                    if (appointments.isEmpty()) {
-                        System.out.println("Schedule calendar is empty.");
-                    } else {
-                        System.out.println();
-                        System.out.println("** List of appointments, ordered by date/time/provider.");
+            running = processCommand(command);
+            syncJournal(); // Nothing journaled is left in flight before the next command
+        }
+        scanner.close();
+        saveFinalSnapshot();
+        closeJournal();
+    }
+
+    /**
+     * Runs a batch of commands read from the given reader until the "Q" command
+     * or the end of the input, then flushes the output. The output is the same
+     * as for run(); the provider load time and the throughput of the batch are
+     * reported on standard error.
+     *
+     * @param in the reader of the command lines.
+     * @return the number of commands processed.
+     * @throws IOException if the commands cannot be read.
+     */
+    public long runBatch(BufferedReader in) throws IOException {
+        System.err.println(providerLoader.report());
+        printStartup();
+        long commands = 0;
+        long start = System.nanoTime();
+
+        boolean running = true;
+        String line;
+        while (running && (line = in.readLine()) != null) {
+            String command = line.trim();
+            if (command.isEmpty())
+                continue;
 
-                        Sort.appointmentByDateTimeAndProvider(appointments);
-                        handleProviderAppointments();
-                        System.out.println("** end of list");
+            running = processCommand(command);
+            commands++;
+        }
+        out.flush();
+        saveFinalSnapshot();
+        closeJournal();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("Processed %d commands in %.3f s (%.0f commands/sec).%n",
+                commands, seconds, seconds > 0 ? commands / seconds : 0.0);
+        return commands;
+    }
+
+    /**
+     * Saves the calendar to a snapshot file every given number of changes and
+     * when the clinic manager stops. If the file exists, the calendar is first
+     * restored from it.
+     *
+     * @param file     the snapshot file.
+     * @param interval the number of changes between two snapshots.
+     * @throws IOException if the existing snapshot cannot be read.
+     */
+    public void enableSnapshots(Path file, int interval) throws IOException {
+        if (Files.exists(file)) {
+            restoreSnapshot(file);
+        }
+        this.snapshotFile = file;
+        this.snapshotInterval = Math.max(1, interval);
+    }
+
+    /**
+     * Sets whether PS keeps the calendar. By default the billing statements
+     * settle the calendar and every appointment is removed; when the calendar
+     * is kept only the billing ledger is settled.
+     *
+     * @param keep true to keep the appointments after billing.
+     */
+    public void setKeepCalendarOnBilling(boolean keep) {
+        this.keepCalendarOnBilling = keep;
+    }
 
+    /**
+     * Gets the billing ledger with the balance of every patient not yet billed.
+     *
+     * @return the billing ledger.
+     */
+    public BillingLedger getLedger() {
+        return ledger;
+    }
+
+    /**
+     * Gets the visits and credit each provider has in the calendar, as shown
+     * by PC.
+     *
+     * @return the provider credits.
+     */
+    public ProviderCredits getCredits() {
+        return credits;
+    }
+
+    /**
+     * Gets the registry of every patient seen by the clinic.
+     *
+     * @return the patient registry.
+     */
+    public PatientRegistry getPatients() {
+        return patients;
+    }
+
+    /**
+     * Replaces the calendar, the billing ledger and the technician rotation
+     * position with the content of a snapshot.
+     *
+     * @param file the snapshot file.
+     * @throws IOException if the snapshot cannot be read.
+     */
+    public void restoreSnapshot(Path file) throws IOException {
+        CalendarSnapshot snapshot = CalendarSnapshot.read(file, providers, patients, calendar);
+        clearVisits();
+        occupancy.clear();
+        byDateTimeProvider.clear();
+        byCountyDateTime.clear();
+        byPatient.clear();
+        appointments.clear();
+        credits.clear();
+        for (Appointment appointment : snapshot.getAppointments()) {
+            appointments.add(appointment);
+            occupancy.add(appointment);
+            credits.add(appointment);
+            patientOf(appointment).addVisit(new Visit(appointment));
+        }
+        byDateTimeProvider.addAllSorted(snapshot.getView(0)); // In the order of saveSnapshot
+        byCountyDateTime.addAllSorted(snapshot.getView(1));
+        byPatient.addAllSorted(snapshot.getView(2));
+
+        // Older snapshots have no ledger, their calendar is billed in full
+        ledger.settle();
+        if (snapshot.getAccounts() == null) {
+            for (Appointment appointment : appointments) {
+                ledger.charge(appointment);
+            }
+        } else {
+            for (BillingLedger.Account account : snapshot.getAccounts()) {
+                ledger.restore(account.getPatient(), account.getVisits(), account.getDue());
+            }
+        }
+
+        technicianList.setCurrentPosition(snapshot.getRotationPosition(), snapshot.getLastAssignedId() >= 0);
+        sequence = snapshot.getSequence();
+    }
+
+    /**
+     * Writes the calendar, the billing ledger and the technician rotation
+     * position to a snapshot.
+     *
+     * @param file the snapshot file.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    public void saveSnapshot(Path file) throws IOException {
+        int position = technicianList.getCurrentPosition();
+        int lastAssignedId = technicianList.hasClaimed() ? providers.idOf(technicianList.get(position)) : -1;
+        util.List<Appointment> calendarNow = new util.List<>(appointments.size());
+        calendarNow.addAll(appointments);
+        CalendarSnapshot.write(file, sequence, providers, position, lastAssignedId, ledger,
+                calendarNow, byDateTimeProvider, byCountyDateTime, byPatient);
+    }
+
+    /**
+     * Journals every change to the calendar. A change is confirmed only once
+     * its record is on disk, and the changes made by concurrent desks share a
+     * flush. The journal is first replayed on top of the calendar, so it must
+     * be enabled after the snapshot is restored.
+     *
+     * @param file the journal file.
+     * @return the number of changes replayed.
+     * @throws IOException if the journal cannot be opened or replayed.
+     */
+    public int enableJournal(Path file) throws IOException {
+        journal = CommandJournal.open(file, CalendarSnapshot.fingerprint(providers), sequence,
+                new CommandJournal.Target() {
+                    @Override
+                    public void office(long change, int epochDay, int slot, Profile patient, int providerId) {
+                        addAppointment(new Appointment(calendar.date(epochDay), Timeslot.fromIndex(slot),
+                                patients.intern(patient), providers.get(providerId)));
+                        sequence = change;
                     }
-                    break;
-                case "PP": // List appointments sorted by patient
-                    if (appointments == null || appointments.isEmpty()) {
-                        System.out.println("Schedule calendar is empty.");
-                    } else {
-                        Sort.appointment(appointments, 'p'); // Sort by patient
-                        System.out.println("Listing appointments sorted by patient...");
-                        for (Appointment appointment : appointments) {
-                            System.out.println(appointment);
-                        }
+
+                    @Override
+                    public void imaging(long change, int epochDay, int slot, Profile patient, int technicianId,
+                            Radiology room, int rotationPosition) {
+                        Technician technician = (Technician) providers.get(technicianId);
+                        addAppointment(new Imaging(calendar.date(epochDay), Timeslot.fromIndex(slot),
+                                patients.intern(patient), technician, room));
+                        technicianList.setCurrentPosition(rotationPosition, true);
+                        sequence = change;
                     }
-                    break;
-                case "PL": // List appointments sorted by county, then date and time
-                    if (appointments.isEmpty()) {
-                        System.out.println("Schedule calendar is empty.");
-                    } else {
-                        System.out.println();
-                        System.out.println("** List of appointments, ordered by county/date/time.");
-                        Sort.appointmentByCounty(appointments); // Sort by county
-                        handleProviderAppointments();
-                        System.out.println("** end of list");
 
+                    @Override
+                    public void cancel(long change, int epochDay, int slot, String firstName, String lastName)
+                            throws IOException {
+                        removeAppointment(replayed(change, epochDay, slot, firstName, lastName));
+                        sequence = change;
                     }
-                    break;
-                case "PO": // List office appointments
-                    if (appointments.isEmpty()) {
-                        System.out.println("Schedule calendar is empty.");
-                    } else {
-                        System.out.println();
-                        System.out.println("** List of office appointments ordered by county/date/time.");
-                        Sort.appointmentByCounty(appointments); // Sort by county, then date and time
-                        listOfficeAppointments();
-                        System.out.println("** end of list");
 
+                    @Override
+                    public void reschedule(long change, int epochDay, int slot, String firstName, String lastName,
+                            int newSlot) throws IOException {
+                        moveAppointment(replayed(change, epochDay, slot, firstName, lastName),
+                                Timeslot.fromIndex(newSlot));
+                        sequence = change;
+                    }
+
+                    @Override
+                    public void billing(long change) {
+                        clearCalendar();
+                        sequence = change;
                     }
-                    break;
-                case "PI": // List imaging appointments
-                    if (appointments.isEmpty()) {
-                        System.out.println("Schedule calendar is empty.");
-                    } else {
-                        System.out.println(); // This creates an empty line
-                        System.out.println("** List of radiology appointments ordered by county/date/time.");
-                        Sort.appointmentByCounty(appointments); // Sort by county, then date and time
-                        listImagingAppointments();
-                        System.out.println("** end of list");
 
+                    @Override
+                    public void settle(long change) {
+                        ledger.settle();
+                        sequence = change;
                     }
-                    break;
-                case "PC": // Display credit amounts
-                    if (appointments.isEmpty()) {
-                        System.out.println("Schedule calendar is empty.");
+                });
+        return journal.getReplayed();
+    }
+
+    // Finds the appointment a replayed change applies to
+    private Appointment replayed(long change, int epochDay, int slot, String firstName, String lastName)
+            throws IOException {
+        Appointment appointment = findAppointment(firstName, lastName, calendar.date(epochDay),
+                Timeslot.fromIndex(slot));
+        if (appointment == null) {
+            throw new IOException("Change " + change + " does not match the calendar.");
+        }
+        return appointment;
+    }
+
+    /**
+     * Waits until every journaled change is on disk. Changes are flushed in
+     * groups, so this only waits for the flush in progress and the next one.
+     */
+    public void syncJournal() {
+        if (journal != null) {
+            try {
+                journal.sync();
+            } catch (IOException e) {
+                System.err.println("Error writing the journal: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes the remaining journaled changes and stops journaling.
+     */
+    public void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Error writing the journal: " + e.getMessage());
+            }
+            journal = null;
+        }
+    }
+
+    /**
+     * Counts a booking and journals it, then waits until it is on disk so it
+     * is only confirmed once it survives a crash. An imaging booking journals
+     * the rotation position read when it is counted, so the last one journaled
+     * holds the latest position even when imaging bookings race.
+     */
+    private void journalBooking(Appointment appointment) {
+        CommandJournal written;
+        long record = 0;
+        synchronized (changeLock) {
+            sequence++;
+            written = journal;
+            if (written != null) {
+                try {
+                    if (appointment instanceof Imaging) {
+                        record = written.imaging(sequence, (Imaging) appointment,
+                                providers.idOf(appointment.getProvider()), technicianList.getCurrentPosition());
                     } else {
-                        displayCredits();
+                        record = written.office(sequence, appointment, providers.idOf(appointment.getProvider()));
                     }
-                    break;
-                case "PS": // Display billing statements
-                    if (appointments.isEmpty()) {
-                        System.out.println("Schedule calendar is empty.");
+                } catch (IOException e) {
+                    System.err.println("Error writing the journal: " + e.getMessage());
+                }
+            }
+            calendarChanged();
+        }
+        awaitJournal(written, record);
+    }
+
+    /**
+     * Counts a cancellation, or a rescheduling when the new timeslot is not
+     * null, and journals it, then waits until it is on disk.
+     */
+    private void journalChange(Date date, Timeslot timeslot, String firstName, String lastName,
+            Timeslot newTimeslot) {
+        CommandJournal written;
+        long record = 0;
+        synchronized (changeLock) {
+            sequence++;
+            written = journal;
+            if (written != null) {
+                try {
+                    if (newTimeslot == null) {
+                        record = written.cancel(sequence, date, timeslot, firstName, lastName);
                     } else {
-                        displayBillingStatements();
+                        record = written.reschedule(sequence, date, timeslot, firstName, lastName, newTimeslot);
                     }
-                    break;
-                case "Q": // Quit the program
-                    running = false;
-                    System.out.println("Clinic Manager terminated.");
-                    break;
-                default:
-                    System.out.println("Invalid command!");
-                    break;
+                } catch (IOException e) {
+                    System.err.println("Error writing the journal: " + e.getMessage());
+                }
             }
+            calendarChanged();
         }
-        scanner.close();
+        awaitJournal(written, record);
+    }
+
+    /**
+     * Counts a billing run and journals it, as a settlement when the calendar
+     * is kept, then waits until it is on disk.
+     */
+    private void journalBilling() {
+        CommandJournal written;
+        long record = 0;
+        synchronized (changeLock) {
+            sequence++;
+            written = journal;
+            if (written != null) {
+                try {
+                    if (keepCalendarOnBilling) {
+                        record = written.settle(sequence);
+                    } else {
+                        record = written.billing(sequence);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error writing the journal: " + e.getMessage());
+                }
+            }
+            calendarChanged();
+        }
+        awaitJournal(written, record);
+    }
+
+    // Waits for the flush of a journaled change, outside the change lock so
+    // the changes of other desks join the same flush
+    private void awaitJournal(CommandJournal written, long record) {
+        if (written != null && record > 0) {
+            try {
+                written.sync(record);
+            } catch (IOException e) {
+                System.err.println("Error writing the journal: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Marks a snapshot as due every snapshot interval. The snapshot is saved
+     * once the command that made the change has released the calendar.
+     */
+    private void calendarChanged() {
+        if (snapshotFile != null && sequence % snapshotInterval == 0) {
+            snapshotDue.set(true);
+        }
+    }
+
+    private void saveSnapshotIfDue() {
+        if (snapshotDue.compareAndSet(true, false)) {
+            writeSnapshot();
+        }
+    }
+
+    private void saveFinalSnapshot() {
+        if (snapshotFile != null) {
+            writeSnapshot();
+        }
+    }
+
+    // Saves the snapshot, after which the journaled changes are no longer
+    // needed. No change can be made while it is saved.
+    private void writeSnapshot() {
+        calendarLock.writeLock().lock();
+        try {
+            saveSnapshot(snapshotFile);
+            if (journal != null) {
+                journal.clear();
+            }
+        } catch (IOException e) {
+            System.err.println("Error saving the snapshot: " + e.getMessage());
+        } finally {
+            calendarLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Prints the provider list and the technician rotation shown at startup.
+     */
+    private void printStartup() {
+        out.println("Providers loaded to the list okok.");
+        listProviders(); // Display providers at startup
+        out.println("Rotation list for the technicians.");
+        technicianList.printTechnicianList(out);
+        out.printf("%nClinic Manager is running...%n%n%n");
+    }
+
+    /**
+     * Processes a single command line and prints its result.
+     *
+     * @param command the command line, without surrounding whitespace.
+     * @return false if the command was Q, true otherwise.
+     */
+    public boolean processCommand(String command) {
+        CommandParser parser = parsers.get();
+        Command kind = parser.parse(command); // Command codes are case sensitive
+        Lock lock = kind == Command.BILLING ? calendarLock.writeLock() : calendarLock.readLock();
+        boolean running;
+        lock.lock();
+        try {
+            running = execute(kind, parser);
+        } finally {
+            lock.unlock();
+        }
+        saveSnapshotIfDue();
+        return running;
+    }
+
+    /**
+     * Runs a decoded command while the calendar is locked.
+     *
+     * @return false if the command was Q, true otherwise.
+     */
+    private boolean execute(Command kind, CommandParser parser) {
+        boolean running = true;
+        switch (kind) {
+            case OFFICE: // Schedule office appointment
+                processOfficeAppointment(parser);
+                break;
+            case IMAGING: // Schedule imaging appointment
+                processImagingAppointment(parser);
+                break;
+            case CANCEL: // Cancel appointment
+                processCancelAppointment(parser);
+                break;
+            case RESCHEDULE: // Reschedule appointment
+                processRescheduleAppointment(parser);
+                break;
+            case LIST_BY_PROVIDER: // List providers by profile
+                if (appointments.isEmpty()) {
+                    out.println("Schedule calendar is empty.");
+                } else {
+                    out.println();
+                    out.println("** List of appointments, ordered by date/time/provider.");
+                    listAllAppointments(byDateTimeProvider);
+                    out.println("** end of list");
+
+                }
+                break;
+            case LIST_BY_PATIENT: // List appointments sorted by patient
+                if (appointments.isEmpty()) {
+                    out.println("Schedule calendar is empty.");
+                } else {
+                    out.println("Listing appointments sorted by patient...");
+                    for (Appointment appointment : byPatient) {
+                        out.println(appointment);
+                    }
+                }
+                break;
+            case LIST_BY_COUNTY: // List appointments sorted by county, then date and time
+                if (appointments.isEmpty()) {
+                    out.println("Schedule calendar is empty.");
+                } else {
+                    out.println();
+                    out.println("** List of appointments, ordered by county/date/time.");
+                    listAllAppointments(byCountyDateTime);
+                    out.println("** end of list");
+
+                }
+                break;
+            case LIST_OFFICE: // List office appointments
+                if (appointments.isEmpty()) {
+                    out.println("Schedule calendar is empty.");
+                } else {
+                    out.println();
+                    out.println("** List of office appointments ordered by county/date/time.");
+                    listOfficeAppointments(byCountyDateTime);
+                    out.println("** end of list");
+
+                }
+                break;
+            case LIST_IMAGING: // List imaging appointments
+                if (appointments.isEmpty()) {
+                    out.println("Schedule calendar is empty.");
+                } else {
+                    out.println(); // This creates an empty line
+                    out.println("** List of radiology appointments ordered by county/date/time.");
+                    listImagingAppointments(byCountyDateTime);
+                    out.println("** end of list");
+
+                }
+                break;
+            case CREDITS: // Display credit amounts
+                if (appointments.isEmpty()) {
+                    out.println("Schedule calendar is empty.");
+                } else {
+                    displayCredits();
+                }
+                break;
+            case BILLING: // Display billing statements
+                if (appointments.isEmpty()) {
+                    out.println("Schedule calendar is empty.");
+                } else {
+                    displayBillingStatements();
+                }
+                break;
+            case QUIT: // Quit the program
+                running = false;
+                out.println("Clinic Manager terminated.");
+                break;
+            default:
+                out.println("Invalid command!");
+                break;
+        }
+        return running;
     }
 
     // Command Handlers
 
-    private void processOfficeAppointment(String command) {
+    private void processOfficeAppointment(CommandParser parser) {
 
         try {
-            String[] tokens = command.split(",");
-            if (tokens.length < 7) {
-                System.out.println("Missing data tokens.");
+            if (parser.fieldCount() < 7) {
+                out.println("Missing data tokens.");
                 return;
             }
 
-            String dateStr = tokens[1];
-            String timeslotStr = tokens[2];
-            String firstName = tokens[3];
-            String lastName = tokens[4];
-            String dobStr = tokens[5];
-            String npi = tokens[6];
-
-            // Parse the appointment date
-            String[] dateParts = dateStr.split("/");
-            Date appointmentDate = new Date(
-                    Integer.parseInt(dateParts[2]), // year
-                    Integer.parseInt(dateParts[0]), // month
-                    Integer.parseInt(dateParts[1]) // day
-            );
+            // Decode the appointment date
+            if (!parser.hasDate()) {
+                out.println("Error processing the office appointment: " + parser.dateError());
+                return;
+            }
+            Date appointmentDate = calendar.date(parser.year(), parser.month(), parser.day());
 
             // Validate appointment date
             if (!appointmentDate.isValid()) {
-                System.out.println("Appointment date: " + appointmentDate + " is not a valid calendar date.");
+                out.println("Appointment date: " + appointmentDate + " is not a valid calendar date.");
                 return;
             }
 
             // Check if the appointment is today or before today
-            Date today = new Date(Calendar.getInstance().get(Calendar.YEAR),
-                    Calendar.getInstance().get(Calendar.MONTH) + 1,
-                    Calendar.getInstance().get(Calendar.DAY_OF_MONTH));
+            Date today = calendar.today();
             if (appointmentDate.compareTo(today) <= 0) {
-                System.out.println("Appointment date: " + appointmentDate + " is today or a date before today.");
+                out.println("Appointment date: " + appointmentDate + " is today or a date before today.");
                 return;
             }
 
             // Check if the appointment is on a weekend
             if (appointmentDate.isWeekend()) {
-                System.out.println("Appointment date: " + appointmentDate + " is Saturday or Sunday.");
+                out.println("Appointment date: " + appointmentDate + " is Saturday or Sunday.");
                 return;
             }
 
             // Check if the appointment is within six months
-            if (!appointmentDate.isWithinSixMonths()) {
-                System.out.println("Appointment date: " + appointmentDate + " is not within six months.");
+            if (!calendar.isWithinSixMonths(appointmentDate)) {
+                out.println("Appointment date: " + appointmentDate + " is not within six months.");
                 return;
             }
 
             // Validate timeslot
-            Timeslot appointmentTimeslot = Timeslot.fromString(timeslotStr);
+            Timeslot appointmentTimeslot = Timeslot.fromIndex(parser.slot());
             if (appointmentTimeslot == null) {
-                System.out.println(timeslotStr + " is not a valid time slot.");
+                out.println(parser.field(CommandParser.TIMESLOT) + " is not a valid time slot.");
                 return;
             }
 
-            // Parse and validate patient's date of birth
-            String[] dobParts = dobStr.split("/");
-            Date dobDate = new Date(
-                    Integer.parseInt(dobParts[2]), // year
-                    Integer.parseInt(dobParts[0]), // month
-                    Integer.parseInt(dobParts[1]) // day
-            );
+            // Decode and validate patient's date of birth
+            if (!parser.hasDob()) {
+                out.println("Error processing the office appointment: " + parser.dobError());
+                return;
+            }
+            Date dobDate = new Date(parser.dobYear(), parser.dobMonth(), parser.dobDay());
             if (!dobDate.isValid()) {
-                System.out.println("Patient dob: " + dobDate + " is not a valid calendar date.");
+                out.println("Patient dob: " + dobDate + " is not a valid calendar date.");
                 return;
             }
             if (dobDate.compareTo(today) >= 0) {
-                System.out.println("Patient dob: " + dobDate + " is today or a day after today.");
+                out.println("Patient dob: " + dobDate + " is today or a day after today.");
                 return;
             }
 
             // Validate NPI and find provider
+            String npi = parser.field(CommandParser.LAST);
             Provider provider = findProviderByNPI(npi);
             if (provider == null) {
-                System.out.println(npi + " - provider doesn't exist.");
+                out.println(npi + " - provider doesn't exist.");
                 return;
             }
 
             // Create patient object
-            Profile profile = new Profile(firstName, lastName, dobDate);
-            Person patient = new Person(profile);
-
-            // Check for existing appointment for the same patient at the same date and
-            // timeslot
-            for (Appointment appt : appointments) {
-                if (appt.getPatient().getProfile().equals(profile) &&
-                        appt.getDate().equals(appointmentDate) &&
-                        appt.getTimeslot().equals(appointmentTimeslot)) {
-                    System.out.println(firstName + " " + lastName + " " + dobStr
+            String firstName = parser.field(CommandParser.FIRST_NAME);
+            String lastName = parser.field(CommandParser.LAST_NAME);
+            String dobStr = parser.field(CommandParser.DOB);
+            Patient patient = patients.intern(firstName, lastName, dobDate);
+            Profile profile = patient.getProfile();
+
+            // Hold the patient and the doctor's location from the checks to the booking
+            ReentrantLock patientLock = patientLock(firstName, lastName);
+            ReentrantLock locationLock = locationLock(provider.getLocation());
+            patientLock.lock();
+            locationLock.lock();
+            try {
+                // Check for existing appointment for the same patient at the same date and
+                // timeslot
+                if (occupancy.isPatientBooked(profile, appointmentDate, appointmentTimeslot)) {
+                    out.println(firstName + " " + lastName + " " + dobStr
                             + " has an existing appointment at the same time slot.");
                     return;
                 }
-            }
 
-            // Check if the provider is available at the specified timeslot
-            if (!isProviderAvailable(provider, appointmentDate, appointmentTimeslot)) {
-                Doctor doctor = (Doctor) provider;
-                System.out.println(String.format("[%s %s %s, %s, %s %s][%s, #%s] is not available at slot %s.",
-                        doctor.getProfile().getFirstName(),
-                        doctor.getProfile().getLastName(),
-                        doctor.getProfile().getDob(),
-                        doctor.getLocation().getCity(),
-                        doctor.getLocation().getCounty(),
-                        doctor.getLocation().getZip(),
-                        doctor.getSpecialty().getNameOnly(),
-                        doctor.getNpi(),
-                        timeslotStr));
-                return;
-            }
+                // Check if the provider is available at the specified timeslot
+                if (!isProviderAvailable(provider, appointmentDate, appointmentTimeslot)) {
+                    Doctor doctor = (Doctor) provider;
+                    out.println(String.format("[%s %s %s, %s, %s %s][%s, #%s] is not available at slot %s.",
+                            doctor.getProfile().getFirstName(),
+                            doctor.getProfile().getLastName(),
+                            doctor.getProfile().getDob(),
+                            doctor.getLocation().getCity(),
+                            doctor.getLocation().getCounty(),
+                            doctor.getLocation().getZip(),
+                            doctor.getSpecialty().getNameOnly(),
+                            doctor.getNpi(),
+                            parser.field(CommandParser.TIMESLOT)));
+                    return;
+                }
 
-            // Create the new Appointment object
-            Appointment newAppointment = new Appointment(appointmentDate, appointmentTimeslot, patient, provider);
-            appointments.add(newAppointment);
+                // Create the new Appointment object
+                Appointment newAppointment = new Appointment(appointmentDate, appointmentTimeslot, patient, provider);
+                addAppointment(newAppointment);
+                journalBooking(newAppointment);
+            } finally {
+                locationLock.unlock();
+                patientLock.unlock();
+            }
 
             // Print the appointment details
             Doctor doctor = (Doctor) provider;
-            System.out.printf("%s %s %s %s %s [%s %s %s, %s, %s %s][%s, #%s] booked.%n",
+            out.printf("%s %s %s %s %s [%s %s %s, %s, %s %s][%s, #%s] booked.%n",
                     appointmentDate,
                     appointmentTimeslot,
                     firstName,
@@ -373,19 +816,12 @@ public class ClinicManager {
                     doctor.getNpi());
 
         } catch (Exception e) {
-            System.out.println("Error processing the office appointment: " + e.getMessage());
+            out.println("Error processing the office appointment: " + e.getMessage());
         }
     }
 
     private boolean isProviderAvailable(Provider provider, Date date, Timeslot timeslot) {
-        for (Appointment appointment : appointments) {
-            if (appointment.getProvider().equals(provider) &&
-                    appointment.getDate().equals(date) &&
-                    appointment.getTimeslot().equals(timeslot)) {
-                return false; // Provider has an existing appointment at that date and timeslot
-            }
-        }
-        return true; // Provider is available
+        return !occupancy.isProviderBooked(provider, date, timeslot);
     }
 
     private boolean isValidNPI(String npi) {
@@ -400,112 +836,102 @@ public class ClinicManager {
 
     // Here's the corrected processImagingAppointment method with proper date
     // comparison logic:
-    private void processImagingAppointment(String command) {
+    private void processImagingAppointment(CommandParser parser) {
         try {
-            String[] tokens = command.split(",");
-            if (tokens.length < 7) {
-                System.out.println("Missing data tokens.");
+            if (parser.fieldCount() < 7) {
+                out.println("Missing data tokens.");
                 return;
             }
 
-            String dateStr = tokens[1];
-            String timeslotStr = tokens[2];
-            String firstName = tokens[3];
-            String lastName = tokens[4];
-            String dobStr = tokens[5];
-            String imagingService = tokens[6];
-
-            // Parse the appointment date
-            String[] dateParts = dateStr.split("/");
-            Date appointmentDate = new Date(
-                    Integer.parseInt(dateParts[2]), // year
-                    Integer.parseInt(dateParts[0]), // month
-                    Integer.parseInt(dateParts[1]) // day
-            );
+            // Decode the appointment date
+            if (!parser.hasDate()) {
+                out.println("Error processing the imaging appointment: " + parser.dateError());
+                return;
+            }
+            Date appointmentDate = calendar.date(parser.year(), parser.month(), parser.day());
 
             // Validate appointment date
             if (!appointmentDate.isValid()) {
-                System.out.println("Appointment date: " + appointmentDate + " is not a valid calendar date.");
+                out.println("Appointment date: " + appointmentDate + " is not a valid calendar date.");
                 return;
             }
 
             // Check if the appointment is today or before today
-            Date today = new Date(Calendar.getInstance().get(Calendar.YEAR),
-                    Calendar.getInstance().get(Calendar.MONTH) + 1,
-                    Calendar.getInstance().get(Calendar.DAY_OF_MONTH));
+            Date today = calendar.today();
             if (appointmentDate.compareTo(today) <= 0) {
-                System.out.println("Appointment date: " + appointmentDate + " is today or a date before today.");
+                out.println("Appointment date: " + appointmentDate + " is today or a date before today.");
                 return;
             }
 
             // Check if the appointment is on a weekend
             if (appointmentDate.isWeekend()) {
-                System.out.println("Appointment date: " + appointmentDate + " is Saturday or Sunday.");
+                out.println("Appointment date: " + appointmentDate + " is Saturday or Sunday.");
                 return;
             }
 
             // Check if the appointment is within six months
-            if (!appointmentDate.isWithinSixMonths()) {
-                System.out.println("Appointment date: " + appointmentDate + " is not within six months.");
+            if (!calendar.isWithinSixMonths(appointmentDate)) {
+                out.println("Appointment date: " + appointmentDate + " is not within six months.");
                 return;
             }
 
             // Validate timeslot
-            Timeslot timeslotObj = Timeslot.fromString(timeslotStr);
+            Timeslot timeslotObj = Timeslot.fromIndex(parser.slot());
             if (timeslotObj == null) {
-                System.out.println(timeslotStr + " is not a valid time slot.");
+                out.println(parser.field(CommandParser.TIMESLOT) + " is not a valid time slot.");
                 return;
             }
 
             // Validate imaging service
-            if (!isValidImagingService(imagingService)) {
-                System.out.println(imagingService + " - imaging service not provided.");
+            Radiology room = parser.service();
+            if (room == null) {
+                out.println(parser.field(CommandParser.LAST) + " - imaging service not provided.");
                 return;
             }
 
-            // Parse and validate patient's DOB
-            String[] dobParts = dobStr.split("/");
-            Date dobDate = new Date(
-                    Integer.parseInt(dobParts[2]), // year
-                    Integer.parseInt(dobParts[0]), // month
-                    Integer.parseInt(dobParts[1]) // day
-            );
+            // Decode and validate patient's DOB
+            if (!parser.hasDob()) {
+                out.println("Error processing the imaging appointment: " + parser.dobError());
+                return;
+            }
+            Date dobDate = new Date(parser.dobYear(), parser.dobMonth(), parser.dobDay());
 
             String dobValidationResult = isValidDateOfBirth(dobDate);
             if (dobValidationResult != null) {
-                System.out.println(dobValidationResult);
+                out.println(dobValidationResult);
                 return;
             }
 
             // Check for existing appointments at the same time
-            Profile patientProfile = new Profile(firstName, lastName, dobDate);
-            for (Appointment appt : appointments) {
-                if (appt.getPatient().getProfile().equals(patientProfile) &&
-                        appt.getDate().equals(appointmentDate) &&
-                        appt.getTimeslot().equals(timeslotObj)) {
-                    System.out.println(firstName + " " + lastName + " " + dobStr +
+            String firstName = parser.field(CommandParser.FIRST_NAME);
+            String lastName = parser.field(CommandParser.LAST_NAME);
+            String dobStr = parser.field(CommandParser.DOB);
+            Patient patient = patients.intern(firstName, lastName, dobDate);
+            Profile patientProfile = patient.getProfile();
+            Technician technician;
+            ReentrantLock patientLock = patientLock(firstName, lastName);
+            patientLock.lock();
+            try {
+                if (occupancy.isPatientBooked(patientProfile, appointmentDate, timeslotObj)) {
+                    out.println(firstName + " " + lastName + " " + dobStr +
                             " has an existing appointment at the same time slot.");
                     return;
                 }
-            }
 
-            // Assign technician using rotation
-            Technician technician = assignTechnicianForService(imagingService, appointmentDate, timeslotObj);
-            if (technician == null) {
-                System.out.printf("Cannot find an available technician at all locations for %s at slot %s.%n",
-                        imagingService.toUpperCase(),
-                        timeslotStr);
-                return;
+                // Assign technician using rotation, and book the appointment with them
+                technician = assignTechnicianForService(room, appointmentDate, timeslotObj, patient);
+                if (technician == null) {
+                    out.printf("Cannot find an available technician at all locations for %s at slot %s.%n",
+                            room,
+                            parser.field(CommandParser.TIMESLOT));
+                    return;
+                }
+            } finally {
+                patientLock.unlock();
             }
 
-            // Create and add the appointment
-            Patient patient = new Patient(patientProfile);
-            Radiology room = Radiology.valueOf(imagingService.toUpperCase());
-            Imaging imagingAppointment = new Imaging(appointmentDate, timeslotObj, patient, technician, room);
-            appointments.add(imagingAppointment);
-
             // Print confirmation
-            System.out.printf("%s %s %s %s %s [%s %s %s, %s, %s %s][rate: $%.2f][%s] booked.%n",
+            out.printf("%s %s %s %s %s [%s %s %s, %s, %s %s][rate: $%.2f][%s] booked.%n",
                     appointmentDate,
                     timeslotObj,
                     firstName,
@@ -518,10 +944,10 @@ public class ClinicManager {
                     technician.getLocation().getCounty(),
                     technician.getLocation().getZip(),
                     (double) technician.rate(),
-                    imagingService.toUpperCase());
+                    room);
 
         } catch (Exception e) {
-            System.out.println("Error processing the imaging appointment: " + e.getMessage());
+            out.println("Error processing the imaging appointment: " + e.getMessage());
         }
     }
 
@@ -531,134 +957,144 @@ public class ClinicManager {
             return "Patient dob: " + dob.toString() + " is not a valid calendar date.";
         }
 
-        // Get today's date
-        Calendar today = Calendar.getInstance();
-        Calendar dobCal = Calendar.getInstance();
-        dobCal.set(dob.getYear(), dob.getMonth() - 1, dob.getDay()); // Month is 0-based in Calendar
-
         // Check if the date is today or in the future
-        if (dobCal.compareTo(today) >= 0) {
+        if (dob.compareTo(calendar.today()) >= 0) {
             return "Patient dob: " + dob.toString() + " is today or a date after today.";
         }
 
         return null; // No issues found
     }
 
-    private void processCancelAppointment(String command) {
+    private void processCancelAppointment(CommandParser parser) {
         try {
-            String[] tokens = command.split(",");
-            if (tokens.length < 6) {
-                System.out.println("Missing data tokens.");
+            if (parser.fieldCount() < 6) {
+                out.println("Missing data tokens.");
                 return;
             }
-            String dateStr = tokens[1]; // Create a Date object from the string
-            Timeslot timeslot = Timeslot.fromString(tokens[2]);
+            String dateStr = parser.field(CommandParser.DATE);
+            Timeslot timeslot = Timeslot.fromIndex(parser.slot());
 
-            String firstName = tokens[3];
-            String lastName = tokens[4];
-            String dob = tokens[5];
+            String firstName = parser.field(CommandParser.FIRST_NAME);
+            String lastName = parser.field(CommandParser.LAST_NAME);
+            String dob = parser.field(CommandParser.DOB);
 
             // Find the appointment and cancel it
-            String[] dateParts = dateStr.split("/");
-            Date appointmentDate = new Date(
-                    Integer.parseInt(dateParts[2]), // year
-                    Integer.parseInt(dateParts[0]), // month
-                    Integer.parseInt(dateParts[1]) // day
-            );
-            boolean found = false;
-            for (Appointment appt : appointments) {
-                if (appt.getPatient().getFirstName().equalsIgnoreCase(firstName)
-                        && appt.getPatient().getLastName().equalsIgnoreCase(lastName)
-                        && appt.getDate().equals(
-                                appointmentDate)
-                        && appt.getTimeslot().equals(timeslot)) {
-                    appointments.remove(appt);
-                    System.out.printf("%s %s - %s %s %s - appointment has been canceled.%n",
+            if (!parser.hasDate()) {
+                out.println("Error processing the cancellation: " + parser.dateError());
+                return;
+            }
+            Date appointmentDate = calendar.date(parser.year(), parser.month(), parser.day());
+            ReentrantLock patientLock = patientLock(firstName, lastName);
+            patientLock.lock();
+            try {
+                Appointment appt = findAppointment(firstName, lastName, appointmentDate, timeslot);
+                if (appt != null) {
+                    ReentrantLock locationLock = locationLock(appt.getProvider().getLocation());
+                    locationLock.lock();
+                    try {
+                        removeAppointment(appt);
+                        journalChange(appointmentDate, timeslot, firstName, lastName, null);
+                    } finally {
+                        locationLock.unlock();
+                    }
+                    out.printf("%s %s - %s %s %s - appointment has been canceled.%n",
+                            dateStr, timeslot, firstName, lastName, dob);
+                } else {
+                    out.printf("%s %s - %s %s %s - appointment does not exist.%n",
                             dateStr, timeslot, firstName, lastName, dob);
-                    found = true;
-                    break;
                 }
-            }
-
-            if (!found) {
-                System.out.printf("%s %s - %s %s %s - appointment does not exist.%n",
-                        dateStr, timeslot, firstName, lastName, dob);
+            } finally {
+                patientLock.unlock();
             }
         } catch (Exception e) {
-            System.out.println("Error processing the cancellation: " + e.getMessage());
+            out.println("Error processing the cancellation: " + e.getMessage());
         }
     }
 
-    private void processRescheduleAppointment(String command) {
+    private void processRescheduleAppointment(CommandParser parser) {
         try {
-            String[] tokens = command.split(",");
-            if (tokens.length < 7) {
-                System.out.println("Missing data tokens.");
+            if (parser.fieldCount() < 7) {
+                out.println("Missing data tokens.");
                 return;
             }
 
-            String dateStr = tokens[1];
-            Timeslot timeslot = Timeslot.fromString(tokens[2]);
-            String firstName = tokens[3];
-            String lastName = tokens[4];
-            String dob = tokens[5];
-            String newTimeslotStr = tokens[6]; // Read the new timeslot as a string
-            Timeslot newTimeslot = Timeslot.fromString(newTimeslotStr); // Convert to Timeslot object
-            String[] dateParts = dateStr.split("/");
-            Date appointmentDate = new Date(
-                    Integer.parseInt(dateParts[2]), // year
-                    Integer.parseInt(dateParts[0]), // month
-                    Integer.parseInt(dateParts[1])); // day
-
-            // Check for existing appointment at the new timeslot
-            boolean hasConflict = false;
-            for (Appointment appt : appointments) {
-                if (appt.getPatient().getFirstName().equalsIgnoreCase(firstName)
-                        && appt.getPatient().getLastName().equalsIgnoreCase(lastName)
-                        && appt.getDate().equals(appointmentDate)
-                        && appt.getTimeslot().equals(newTimeslot)) {
-                    hasConflict = true;
-                    break;
-                }
+            String dateStr = parser.field(CommandParser.DATE);
+            Timeslot timeslot = Timeslot.fromIndex(parser.slot());
+            String firstName = parser.field(CommandParser.FIRST_NAME);
+            String lastName = parser.field(CommandParser.LAST_NAME);
+            String dob = parser.field(CommandParser.DOB);
+            Timeslot newTimeslot = Timeslot.fromIndex(parser.newSlot());
+            if (!parser.hasDate()) {
+                out.println("Error processing the rescheduling: " + parser.dateError());
+                return;
             }
-
-            if (hasConflict) {
-                System.out.printf("%s %s %s %s has an existing appointment at %s %s%n",
-                        firstName, lastName, dob, "on", dateStr, newTimeslot);
-                return; // Exit the method if there's a conflict
+            if (newTimeslot == null) {
+                out.println(parser.field(CommandParser.LAST) + " is not a valid time slot.");
+                return;
             }
+            Date appointmentDate = calendar.date(parser.year(), parser.month(), parser.day());
+
+            ReentrantLock patientLock = patientLock(firstName, lastName);
+            patientLock.lock();
+            try {
+                // Check for existing appointment at the new timeslot
+                if (findAppointment(firstName, lastName, appointmentDate, newTimeslot) != null) {
+                    out.printf("%s %s %s %s has an existing appointment at %s %s%n",
+                            firstName, lastName, dob, "on", dateStr, newTimeslot);
+                    return; // Exit the method if there's a conflict
+                }
 
-            // Find the appointment to reschedule
-            boolean found = false;
-            for (Appointment appt : appointments) {
-                if (appt.getPatient().getFirstName().equalsIgnoreCase(firstName)
-                        && appt.getPatient().getLastName().equalsIgnoreCase(lastName)
-                        && appt.getDate().equals(appointmentDate)
-                        && appt.getTimeslot().equals(timeslot)) {
-                    appt.setTimeSlot(newTimeslot); // Reschedule
-                    System.out.printf("Rescheduled to %s %s %s %s [%s, %s, %s]%n",
+                // Find the appointment to reschedule
+                Appointment appt = findAppointment(firstName, lastName, appointmentDate, timeslot);
+                if (appt != null) {
+                    Provider provider = appt.getProvider();
+                    boolean providerFree;
+                    boolean roomFree = true;
+                    ReentrantLock locationLock = locationLock(provider.getLocation());
+                    locationLock.lock();
+                    try {
+                        // The provider and the imaging room must be free at the new timeslot too
+                        providerFree = isProviderAvailable(provider, appointmentDate, newTimeslot);
+                        if (appt instanceof Imaging) {
+                            roomFree = !occupancy.isRoomBooked(provider.getLocation(), ((Imaging) appt).getRoom(),
+                                    appointmentDate, newTimeslot);
+                        }
+                        if (providerFree && roomFree) {
+                            moveAppointment(appt, newTimeslot); // Reschedule
+                            journalChange(appointmentDate, timeslot, firstName, lastName, newTimeslot);
+                        }
+                    } finally {
+                        locationLock.unlock();
+                    }
+                    if (!providerFree) {
+                        out.printf("%s is not available at %s %s.%n", provider.getName(), dateStr, newTimeslot);
+                        return;
+                    }
+                    if (!roomFree) {
+                        out.printf("%s room at %s is not available at %s %s.%n", ((Imaging) appt).getRoom(),
+                                provider.getLocation().getCity(), dateStr, newTimeslot);
+                        return;
+                    }
+                    out.printf("Rescheduled to %s %s %s %s [%s, %s, %s]%n",
                             dateStr, newTimeslot, firstName, lastName,
-                            appt.getProvider().getProfile().getFirstName(), // Assuming provider has a profile with a
-                                                                            // name
+                            appt.getProvider().getProfile().getFirstName(), // Assuming provider has a profile with
+                                                                            // a name
                             appt.getProvider().getLocation().getCity(),
                             appt.getProvider().getLocation().getCounty());
-                    found = true;
-                    break;
+                } else {
+                    out.printf("%s %s %s %s does not exist.%n",
+                            dateStr, timeslot, firstName, lastName);
                 }
-            }
-
-            if (!found) {
-                System.out.printf("%s %s %s %s does not exist.%n",
-                        dateStr, timeslot, firstName, lastName);
+            } finally {
+                patientLock.unlock();
             }
         } catch (Exception e) {
-            System.out.println("Error processing the rescheduling: " + e.getMessage());
+            out.println("Error processing the rescheduling: " + e.getMessage());
         }
     }
 
     private void listProviders() {
-        Sort.provider(providers); // Sort by provider profile
-
+        // The registry iterates in last name order
         for (Provider provider : providers) {
             String providerDetails = String.format("[%s %s %s, %s, %s %s]",
                     provider.getProfile().getFirstName(),
@@ -680,65 +1116,54 @@ public class ClinicManager {
                 providerDetails += String.format("[rate: $%.2f]", (double) technician.rate());
             }
 
-            System.out.println(providerDetails);
+            out.println(providerDetails);
 
         }
-        System.out.println();
+        out.println();
 
     }
 
     private void displayTechnicianRotation() {
-        System.out.println("Rotation list for the technicians.");
+        out.println("Rotation list for the technicians.");
 
         if (technicianList.size() == 0) {
-            System.out.println("No technicians available.");
+            out.println("No technicians available.");
             return;
         }
 
-        // Get the first technician from the list
-        Technician firstTechnician = technicianList.getFirstTechnician(); // Start with the first technician (head)
-        Technician currentTechnician = firstTechnician;
-
-        // Debug: Ensure we have the correct first technician
-        System.out.println("First Technician: " + firstTechnician.getProfile().getFirstName() + " "
+        // Start with the first technician (head), without moving the rotation
+        Technician firstTechnician = technicianList.get(0);
+        out.println("First Technician: " + firstTechnician.getProfile().getFirstName() + " "
                 + firstTechnician.getProfile().getLastName());
 
         // StringBuilder to accumulate the output
         StringBuilder rotationList = new StringBuilder();
 
-        // Traverse the circular list
-        do {
+        // Traverse the rotation once
+        for (int position = 0; position < technicianList.size(); position++) {
+            Technician currentTechnician = technicianList.get(position);
+
             // Append the technician details to the rotation list
             rotationList.append(String.format("%s (%s)",
                     currentTechnician.getProfile().getFirstName() + " " + currentTechnician.getProfile().getLastName(),
                     currentTechnician.getLocation().getCity()));
             rotationList.append(" --> ");
 
-            // Debug: Print each technician as we visit them
-            System.out.println("Visiting: " + currentTechnician.getProfile().getFirstName() + " "
+            out.println("Visiting: " + currentTechnician.getProfile().getFirstName() + " "
                     + currentTechnician.getProfile().getLastName());
-
-            // Get the next technician in the rotation
-            currentTechnician = technicianList.getNextTechnician();
-
-        } while (currentTechnician != firstTechnician); // Continue until we loop back to the first technician
+        }
 
         // Remove the last arrow
-        if (rotationList.length() > 0) {
-            rotationList.setLength(rotationList.length() - 5); // Remove last " --> "
-        }
+        rotationList.setLength(rotationList.length() - 5); // Remove last " --> "
 
         // Print the final rotation list
-        System.out.println(rotationList.toString());
-        System.out.println();
+        out.println(rotationList.toString());
+        out.println();
     }
 
-    private void listOfficeAppointments() {
-
-        // Sort appointments by county, date, and timeslot
-
-        // Display sorted appointments
-        for (Appointment appointment : appointments) {
+    private void listOfficeAppointments(Iterable<Appointment> ordered) {
+        // Display appointments in the order of the view
+        for (Appointment appointment : ordered) {
             if (!(appointment instanceof Imaging)) { // Only list office appointments
                 displayRegularAppointment(appointment);
             }
@@ -746,16 +1171,8 @@ public class ClinicManager {
 
     }
 
-    public void handleProviderAppointments() {
-        if (appointments.isEmpty()) {
-            System.out.println("Schedule calendar is empty.");
-        } else {
-            listAllAppointments();
-        }
-    }
-
-    private void listAllAppointments() {
-        for (Appointment appointment : appointments) {
+    private void listAllAppointments(Iterable<Appointment> ordered) {
+        for (Appointment appointment : ordered) {
             if (appointment instanceof Imaging) {
                 displayImagingAppointment((Imaging) appointment);
             } else {
@@ -770,7 +1187,7 @@ public class ClinicManager {
         Provider provider = appointment.getProvider();
         Doctor doctor = (Doctor) provider; // Cast the provider to Doctor
 
-        System.out.printf("%s %s %s %s %s [%s %s %s, %s, %s %s][%s, #%s]%n",
+        out.printf("%s %s %s %s %s [%s %s %s, %s, %s %s][%s, #%s]%n",
                 appointment.getDate(),
                 appointment.getTimeslot(),
                 patient.getProfile().getFirstName(),
@@ -794,7 +1211,7 @@ public class ClinicManager {
         String roomType = imagingAppointment.getRoom().toString();
         double rate = provider.rate();
 
-        System.out.printf("%s %s %s %s %s [%s %s %s, %s, %s %s][rate: $%.2f][%s]%n",
+        out.printf("%s %s %s %s %s [%s %s %s, %s, %s %s][rate: $%.2f][%s]%n",
                 appointmentDate,
                 timeslot,
                 patient.getProfile().getFirstName(),
@@ -812,9 +1229,9 @@ public class ClinicManager {
                 roomType);
     }
 
-    private void listImagingAppointments() {
+    private void listImagingAppointments(Iterable<Appointment> ordered) {
 
-        for (Appointment appointment : appointments) {
+        for (Appointment appointment : ordered) {
             if (appointment instanceof Imaging) { // Only display imaging appointments
                 Imaging imagingAppointment = (Imaging) appointment; // Cast to Imaging to access additional details
 
@@ -829,7 +1246,7 @@ public class ClinicManager {
                 double rate = provider.rate(); // Assuming rate is a method in Provider
 
                 // Print formatted output
-                System.out.printf("%s %s %s %s [%s %s, %s, %s, %s][rate: $%.2f][%s]%n",
+                out.printf("%s %s %s %s [%s %s, %s, %s, %s][rate: $%.2f][%s]%n",
                         appointmentDate, // Date of appointment
                         timeslot, // Timeslot of appointment
                         patient.getProfile().getFirstName(), // Patient's first name
@@ -846,82 +1263,161 @@ public class ClinicManager {
     }
 
     private void displayCredits() {
-        System.out.println();
-        System.out.println("** Credit amount ordered by provider. **");
-
-        // Sort providers by profile
-        Sort.provider(providers);
+        out.println();
+        out.println("** Credit amount ordered by provider. **");
 
-        for (int i = 0; i < providers.size(); i++) {
-            Provider provider = providers.get(i);
-            String creditDetails;
-
-            // Determine if the provider is a Doctor or Technician
-            if (provider instanceof Doctor) {
-                creditDetails = String.format("%s [%s] [credit amount: $%.2f]",
-                        provider.getProfile().getFirstName() + " " + provider.getProfile().getLastName(),
-                        provider.getProfile().getDob(),
-                        (double) provider.rate()); // Cast to double for formatting
-            } else if (provider instanceof Technician) {
-                creditDetails = String.format("%s [%s] [credit amount: $%.2f]",
-                        provider.getProfile().getFirstName() + " " + provider.getProfile().getLastName(),
-                        provider.getProfile().getDob(),
-                        (double) provider.rate()); // Cast to double for formatting
-            } else {
-                continue; // Skip any other type of provider not handled
-            }
+        // The registry iterates in last name order, the credits are kept per provider
+        int i = 0;
+        for (Provider provider : providers) {
+            i++;
+            String creditDetails = String.format("%s [%s] [credit amount: $%.2f]",
+                    provider.getProfile().getFirstName() + " " + provider.getProfile().getLastName(),
+                    provider.getProfile().getDob(),
+                    (double) credits.getCredit(provider));
 
             // Print the formatted output with the index
-            System.out.printf("(%d) %s%n", (i + 1), creditDetails);
+            out.printf("(%d) %s%n", i, creditDetails);
         }
 
-        System.out.println("** end of list **");
+        out.println("** end of list **");
     }
 
     private void displayBillingStatements() {
-        System.out.println();
-        System.out.println("** Billing Statements for all Patients **");
+        out.println();
+        out.println("** Billing Statements for all Patients **");
+
+        // The ledger holds the total of each patient, in profile order
+        for (BillingLedger.Account account : ledger) {
+            Profile patient = account.getPatient();
+            out.printf("%s %s %s: Total Bill = $%.2f%n", patient.getFirstName(), patient.getLastName(),
+                    patient.getDob(), (double) account.getDue());
+        }
 
-        // HashMap to store total billing amounts for each patient
-        HashMap<String, Double> patientBills = new HashMap<>();
+        out.println("** end of list **");
+        if (keepCalendarOnBilling) {
+            ledger.settle(); // The visits are billed, the appointments stay
+        } else {
+            clearCalendar(); // All appointments are now billed
+        }
+        journalBilling();
 
-        // Iterate over all appointments (assuming they are all completed)
-        for (Appointment appointment : appointments) {
-            Person patient = appointment.getPatient();
-            String patientName = patient.getProfile().getFirstName() + " " + patient.getProfile().getLastName();
+    }
 
-            // Determine the charge based on the provider (doctor or technician)
-            Provider provider = appointment.getProvider();
-            double charge = 0;
+    // Helper Methods
 
-            if (provider instanceof Doctor) {
-                Doctor doctor = (Doctor) provider;
-                charge = doctor.rate(); // Charge based on the doctor's specialty rate
-            } else if (provider instanceof Technician) {
-                Technician technician = (Technician) provider;
-                charge = technician.getRatePerVisit(); // Charge based on the technician's rate
-            }
+    /**
+     * Finds the first appointment of a patient, matched by name ignoring case,
+     * at the given date and timeslot. Only that timeslot of the day is looked
+     * at.
+     *
+     * @return the appointment, or null if there is none.
+     */
+    private Appointment findAppointment(String firstName, String lastName, Date date, Timeslot timeslot) {
+        return appointments.find(firstName, lastName, date, timeslot);
+    }
 
-            // Add the charge to the patient's total bill
-            patientBills.put(patientName, patientBills.getOrDefault(patientName, 0.0) + charge);
+    /**
+     * Gets the lock of a patient's stripe. Patients are striped by name ignoring
+     * case, since cancel and reschedule match them that way.
+     */
+    private ReentrantLock patientLock(String firstName, String lastName) {
+        int hash = 17;
+        for (int i = 0; i < firstName.length(); i++) {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(firstName.charAt(i)));
         }
+        hash = 31 * hash + ' ';
+        for (int i = 0; i < lastName.length(); i++) {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(lastName.charAt(i)));
+        }
+        return patientLocks[(hash ^ (hash >>> 16)) & (PATIENT_STRIPES - 1)];
+    }
 
-        // Display billing statements
-        for (Map.Entry<String, Double> entry : patientBills.entrySet()) {
-            String patientName = entry.getKey();
-            double totalBill = entry.getValue();
-            System.out.printf("%s: Total Bill = $%.2f%n", patientName, totalBill);
+    // Gets the lock of the providers and imaging rooms of a location
+    private ReentrantLock locationLock(Location location) {
+        return locationLocks[location.ordinal()];
+    }
+
+    /**
+     * Settles the calendar after billing, removing every appointment.
+     */
+    private void clearCalendar() {
+        clearVisits();
+        appointments.clear();
+        ledger.settle();
+        credits.clear();
+        occupancy.clear();
+        byDateTimeProvider.clear();
+        byCountyDateTime.clear();
+        byPatient.clear();
+    }
+
+    // Clears the visits of every patient with an appointment in the calendar
+    private void clearVisits() {
+        for (Appointment appointment : appointments) {
+            patientOf(appointment).getVisitStore().clear();
         }
+    }
 
-        // Clear all appointments as they are now billed
-        // appointments = null;
+    // Gets the registered patient an appointment was booked for
+    private static Patient patientOf(Appointment appointment) {
+        return (Patient) appointment.getPatient();
+    }
 
-        System.out.println("** end of list **");
-        appointments = null;
+    /**
+     * Adds an appointment to the calendar, its occupancy index, the billing
+     * ledger, the provider credits, its ordered views and the patient's
+     * visits.
+     */
+    private void addAppointment(Appointment appointment) {
+        appointments.add(appointment);
+        patientOf(appointment).addVisit(new Visit(appointment));
+        occupancy.add(appointment);
+        ledger.charge(appointment);
+        credits.add(appointment);
+        byDateTimeProvider.add(appointment);
+        byCountyDateTime.add(appointment);
+        byPatient.add(appointment);
+    }
 
+    /**
+     * Removes an appointment from the calendar, its occupancy index, the
+     * billing ledger, the provider credits, its ordered views and the
+     * patient's visits.
+     */
+    private void removeAppointment(Appointment appointment) {
+        appointments.remove(appointment);
+        patientOf(appointment).removeVisit(appointment);
+        occupancy.remove(appointment);
+        ledger.refund(appointment);
+        credits.remove(appointment);
+        byDateTimeProvider.remove(appointment);
+        byCountyDateTime.remove(appointment);
+        byPatient.remove(appointment);
     }
 
-    // Helper Methods
+    /**
+     * Moves an appointment to a new timeslot. The appointment is taken out of
+     * the calendar, the index, views and the patient's visits before the
+     * change so they are updated in place.
+     */
+    private void moveAppointment(Appointment appointment, Timeslot newTimeslot) {
+        Patient patient = patientOf(appointment);
+        Visit visit = patient.removeVisit(appointment); // Hashed by timeslot
+        appointments.remove(appointment);
+        occupancy.remove(appointment);
+        byDateTimeProvider.remove(appointment);
+        byCountyDateTime.remove(appointment);
+        byPatient.remove(appointment);
+        appointment.setTimeSlot(newTimeslot);
+        if (visit != null) {
+            patient.addVisit(visit);
+        }
+        appointments.add(appointment);
+        occupancy.add(appointment);
+        byDateTimeProvider.add(appointment);
+        byCountyDateTime.add(appointment);
+        byPatient.add(appointment);
+    }
 
     private boolean isValidDate(String date) {
         // Implement date validation logic (not today, not before today, valid format,
@@ -938,96 +1434,70 @@ public class ClinicManager {
         }
     }
 
-    private boolean isValidImagingService(String service) {
-        return service.equalsIgnoreCase("xray") || service.equalsIgnoreCase("catscan")
-                || service.equalsIgnoreCase("ultrasound");
-    }
-
     private Provider findProviderByNPI(String npi) {
-        for (Provider provider : providers) {
-            if (provider instanceof Doctor) {
-                Doctor doctor = (Doctor) provider;
-                if (doctor.getNpi().equals(npi)) {
-                    return doctor;
-                }
-            }
-        }
-        return null;
+        return providers.findDoctorByNpi(npi);
     }
 
-    // The problem is in the loop termination logic. Here's the fixed version with
-    // comments explaining the issues:
-    private Technician lastAssignedTechnician = null;
-
-    private Technician assignTechnicianForService(String imagingService, Date appointmentDate, Timeslot timeslotObj) {
+    /**
+     * Assigns the next available technician in the rotation and books the
+     * imaging appointment with them. The rotation is not locked: the first
+     * technician with a free room is found in the occupancy bitsets from the
+     * current state of the rotation, and is claimed only if no other booking
+     * changed the rotation in the meantime, otherwise the search starts
+     * again. The technician's location is locked while they are checked
+     * again and booked.
+     *
+     * @return the technician, or null if none is available.
+     */
+    private Technician assignTechnicianForService(Radiology room, Date appointmentDate, Timeslot timeslotObj,
+            Patient patient) {
         if (technicianList.isEmpty()) {
             return null;
         }
 
-        // Get starting technician based on last assignment
-        Technician startingTech;
-        if (lastAssignedTechnician == null) {
-            startingTech = technicianList.getFirstTechnician();
-        } else {
-            startingTech = technicianList.getNextTechnician(); // Start from the technician after the last assigned one
-        }
-
-        Technician currentTech = startingTech;
-
-        // Loop through all technicians once
-        do {
-
-            // Check if technician is available and their location's room is available
-            if (isTechnicianAvailable(currentTech, appointmentDate, timeslotObj) &&
-                    isRoomAvailableAtLocation(currentTech, imagingService, appointmentDate, timeslotObj)) {
-
-                // Book both technician and room
-
-                // Update last assigned technician for next rotation
-                lastAssignedTechnician = currentTech;
-                return currentTech;
+        while (true) {
+            int state = technicianList.state();
+            int start = technicianList.firstCandidate(state); // After the last assigned technician
+            int position = occupancy.findFreeTechnician(room, appointmentDate, timeslotObj, start);
+            if (position < 0) {
+                // Move back to the head when no one is available, so the next search
+                // starts from the person after it
+                if (technicianList.rewind(state)) {
+                    return null;
+                }
+                continue;
             }
 
-            currentTech = technicianList.getNextTechnician();
-        } while (currentTech != startingTech);
-
-        // Update the last assigned technician even when no one is available
-        // This ensures next search starts from the next person in rotation
-        technicianList.getFirstTechnician();
-
-        return null;
-    }
-
-    private boolean isRoomAvailableAtLocation(Technician technician, String serviceType,
-            Date appointmentDate, Timeslot slot) {
-        String location = technician.getLocation().getCity();
-
-        // Check existing appointments for room conflict at this location
-        for (Appointment appointment : appointments) {
-            if (appointment instanceof Imaging && appointment.getTechnician().getLocation().getCity().equals(location)
-                    &&
-                    appointment.getServiceType().equalsIgnoreCase(serviceType) &&
-                    appointment.getDate().equals(appointmentDate) &&
-                    appointment.getTimeslot().equals(slot)) {
-
-                return false;
+            Technician currentTech = technicianList.get(position);
+            ReentrantLock locationLock = locationLock(currentTech.getLocation());
+            locationLock.lock();
+            try {
+                if (isTechnicianAvailable(currentTech, appointmentDate, timeslotObj) &&
+                        isRoomAvailableAtLocation(currentTech, room, appointmentDate, timeslotObj) &&
+                        technicianList.claim(state, position)) {
+
+                    // Book both technician and room
+                    Imaging imagingAppointment = new Imaging(appointmentDate, timeslotObj, patient, currentTech,
+                            room);
+                    addAppointment(imagingAppointment);
+                    journalBooking(imagingAppointment);
+                    return currentTech;
+                }
+            } finally {
+                locationLock.unlock();
             }
         }
+    }
 
-        return true;
+    private boolean isRoomAvailableAtLocation(Technician technician, Radiology room,
+            Date appointmentDate, Timeslot slot) {
+        // Check the room of this service at the technician's location
+        return !occupancy.isRoomBooked(technician.getLocation(), room, appointmentDate, slot);
     }
 
     private boolean isTechnicianAvailable(Technician technician, Date appointmentDate, Timeslot timeslot) {
-        // Check if technician is already booked at this time by examining the
-        // appointments list
-        for (Appointment appointment : appointments) {
-            if (appointment.getTechnician() != null && appointment.getTechnician().equals(technician) &&
-                    appointment.getDate().equals(appointmentDate) &&
-                    appointment.getTimeslot().equals(timeslot)) {
-                return false; // Technician is not available
-            }
-        }
-        return true; // Technician is available
+        // Check if technician is already booked at this time
+        return !occupancy.isProviderBooked(technician, appointmentDate, timeslot);
     }
 
 }
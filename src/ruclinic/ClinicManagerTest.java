@@ -0,0 +1,57 @@
+package ruclinic;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClinicManagerTest {
+    private StringWriter output;
+    private ClinicManager clinic;
+    private String date; // The next weekday, in the booking window
+
+    @BeforeEach
+    void setUp() {
+        output = new StringWriter();
+        clinic = new ClinicManager("providers.txt", new PrintWriter(output, true));
+        LocalDate day = LocalDate.now().plusDays(1);
+        while (day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            day = day.plusDays(1);
+        }
+        date = day.getMonthValue() + "/" + day.getDayOfMonth() + "/" + day.getYear();
+    }
+
+    @Test
+    void cancelAtInvalidSlotDoesNotExist() {
+        clinic.processCommand("C," + date + ",13,John,Doe,12/13/1989");
+        assertTrue(output.toString().contains(date + " null - John Doe 12/13/1989 - appointment does not exist."),
+                output.toString());
+    }
+
+    @Test
+    void rescheduleToInvalidSlotKeepsAppointment() {
+        clinic.processCommand("D," + date + ",1,John,Doe,12/13/1989,01");
+        clinic.processCommand("R," + date + ",1,John,Doe,12/13/1989,13");
+        assertTrue(output.toString().contains("13 is not a valid time slot."), output.toString());
+
+        clinic.processCommand("C," + date + ",1,John,Doe,12/13/1989");
+        assertTrue(output.toString().contains("appointment has been canceled."), output.toString());
+    }
+
+    @Test
+    void rescheduleIntoProvidersBookedSlotIsRejected() {
+        clinic.processCommand("D," + date + ",1,John,Doe,12/13/1989,01");
+        clinic.processCommand("D," + date + ",2,Jane,Doe,12/13/1989,01");
+        clinic.processCommand("R," + date + ",1,John,Doe,12/13/1989,2");
+        assertTrue(output.toString().contains("ANDREW PATEL is not available at " + date + " 9:30 AM."),
+                output.toString());
+
+        clinic.processCommand("C," + date + ",1,John,Doe,12/13/1989");
+        assertTrue(output.toString().contains("appointment has been canceled."), output.toString());
+    }
+}
@@ -0,0 +1,44 @@
+package ruclinic;
+
+/**
+ * Enum representing the commands accepted by the clinic manager.
+ * Each command has the code typed at the start of a command line.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+public enum Command {
+    OFFICE("D"),
+    IMAGING("T"),
+    CANCEL("C"),
+    RESCHEDULE("R"),
+    LIST_BY_PROVIDER("PA"),
+    LIST_BY_PATIENT("PP"),
+    LIST_BY_COUNTY("PL"),
+    LIST_OFFICE("PO"),
+    LIST_IMAGING("PI"),
+    CREDITS("PC"),
+    BILLING("PS"),
+    QUIT("Q"),
+    INVALID("");
+
+    private final String code;
+
+    /**
+     * Constructor for the Command enum.
+     *
+     * @param code The code of the command, case sensitive.
+     */
+    Command(String code) {
+        this.code = code;
+    }
+
+    /**
+     * Gets the code of the command.
+     *
+     * @return The command code.
+     */
+    public String getCode() {
+        return code;
+    }
+}
@@ -0,0 +1,558 @@
+package ruclinic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import util.Date;
+import util.Timeslot;
+
+/**
+ * Write-ahead journal of the changes made to the appointment calendar, so the
+ * changes made after the last snapshot survive a crash.
+ *
+ * Every booking, cancellation, rescheduling, billing run and settlement is
+ * appended as a record numbered with its change sequence. Records are written
+ * by a background thread with group commit: the records appended while one
+ * disk flush is in progress are written and flushed together by the next one,
+ * so a burst of changes waits for one flush instead of one flush each. Every
+ * append returns the number of its record, and sync(record) waits until that
+ * record is on disk, so a change can be confirmed once it survives a crash
+ * while the changes of other threads share its flush. sync() waits until
+ * every record appended so far is on disk.
+ *
+ * At startup the records numbered after the snapshot are replayed on top of
+ * it. A record cut short by a crash ends the replay and is removed. Once a
+ * snapshot is saved the journal is cleared.
+ *
+ * Layout, big-endian:
+ * header: magic, version, roster fingerprint
+ * records: payload length, payload, CRC32 of the payload
+ * payload: sequence, operation, then
+ * office: epoch day, slot, first name, last name, dob epoch day, provider id
+ * imaging: epoch day, slot, first name, last name, dob epoch day, technician
+ * id, room, rotation position
+ * cancel: epoch day, slot, first name, last name
+ * reschedule: epoch day, slot, first name, last name, new slot
+ * billing, settlement: nothing
+ * with the names stored as a length and UTF-8 bytes.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+public class CommandJournal implements Closeable {
+    private static final int MAGIC = 0x52554A4C; // "RUJL"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = Integer.BYTES + Short.BYTES + Long.BYTES;
+    private static final int FRAME_SIZE = Integer.BYTES + Long.BYTES + 1 + Integer.BYTES; // Without the fields
+    private static final int BOOKING_SIZE = Integer.BYTES + 1 + 2 * Short.BYTES + Integer.BYTES; // Without names
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final Radiology[] ROOMS = Radiology.values();
+
+    private static final byte OFFICE = 1;
+    private static final byte IMAGING = 2;
+    private static final byte CANCEL = 3;
+    private static final byte RESCHEDULE = 4;
+    private static final byte BILLING = 5;
+    private static final byte SETTLE = 6;
+
+    /**
+     * Receives the replayed changes, in the order they were made.
+     */
+    public interface Target {
+        void office(long sequence, int epochDay, int slot, Profile patient, int providerId) throws IOException;
+
+        void imaging(long sequence, int epochDay, int slot, Profile patient, int technicianId, Radiology room,
+                int rotationPosition) throws IOException;
+
+        void cancel(long sequence, int epochDay, int slot, String firstName, String lastName) throws IOException;
+
+        void reschedule(long sequence, int epochDay, int slot, String firstName, String lastName, int newSlot)
+                throws IOException;
+
+        void billing(long sequence) throws IOException;
+
+        void settle(long sequence) throws IOException;
+    }
+
+    private final FileChannel channel;
+    private final CRC32 crc; // Checksums the records as they are appended
+    private final Thread flusher; // Writes and flushes the appended records
+    private ByteBuffer pending; // Records appended and not written yet
+    private ByteBuffer writing; // Records being written by the flusher
+    private int recordStart; // Position in pending of the record being appended
+    private long appended; // Records appended so far
+    private long durable; // Records written and flushed so far
+    private long flushes; // Disk flushes so far
+    private final int replayed; // Records replayed when the journal was opened
+    private IOException failure; // Write error, reported by every later call
+    private boolean closed;
+
+    private CommandJournal(FileChannel channel, int replayed) {
+        this.channel = channel;
+        this.crc = new CRC32();
+        this.pending = ByteBuffer.allocate(BUFFER_SIZE);
+        this.writing = ByteBuffer.allocate(BUFFER_SIZE);
+        this.replayed = replayed;
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Opens a journal, creating it if needed, and replays the records numbered
+     * after the given sequence.
+     *
+     * @param file        the journal file.
+     * @param fingerprint the fingerprint of the provider roster.
+     * @param after       the sequence of the calendar the records apply to.
+     * @param target      receives the replayed changes.
+     * @return the journal, ready to append to.
+     * @throws IOException if the journal cannot be read, was written with
+     *                     another provider roster, or does not follow the
+     *                     calendar.
+     */
+    public static CommandJournal open(Path file, long fingerprint, long after, Target target) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            int replayed = 0;
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putShort(VERSION).putLong(fingerprint).flip();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                channel.force(true);
+            } else {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                long end = HEADER_SIZE;
+                try {
+                    if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                        throw new IOException(file + " is not a calendar journal.");
+                    }
+                    if (buffer.getLong() != fingerprint) {
+                        throw new IOException(file + " was written for a different provider roster.");
+                    }
+                    long expected = after + 1;
+                    ByteBuffer record;
+                    while ((record = nextRecord(buffer)) != null) {
+                        long sequence = record.getLong();
+                        if (sequence > after) {
+                            if (sequence != expected) {
+                                throw new IOException(file + " is missing changes " + expected + " to "
+                                        + (sequence - 1) + ".");
+                            }
+                            replay(record, sequence, target);
+                            expected++;
+                            replayed++;
+                        }
+                        end = buffer.position();
+                    }
+                } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                    throw new IOException(file + " is damaged: " + e, e);
+                }
+                if (end < channel.size()) {
+                    channel.truncate(end); // Drop the record cut short by a crash
+                }
+            }
+            channel.position(channel.size());
+            return new CommandJournal(channel, replayed);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends an office booking.
+     *
+     * @param sequence    the change sequence.
+     * @param appointment the booked appointment.
+     * @param providerId  the registry id of the doctor.
+     * @return the number of the record.
+     * @throws IOException if the journal has failed or is closed.
+     */
+    public long office(long sequence, Appointment appointment, int providerId) throws IOException {
+        Profile patient = appointment.getPatient().getProfile();
+        byte[] firstName = utf8(patient.getFirstName());
+        byte[] lastName = utf8(patient.getLastName());
+        synchronized (this) {
+            begin(sequence, OFFICE, BOOKING_SIZE + firstName.length + lastName.length + Integer.BYTES);
+            putBooking(appointment, firstName, lastName);
+            pending.putInt(providerId);
+            return end();
+        }
+    }
+
+    /**
+     * Appends an imaging booking.
+     *
+     * @param sequence         the change sequence.
+     * @param appointment      the booked appointment.
+     * @param technicianId     the registry id of the technician.
+     * @param rotationPosition the technician rotation position after the
+     *                         booking.
+     * @return the number of the record.
+     * @throws IOException if the journal has failed or is closed.
+     */
+    public long imaging(long sequence, Imaging appointment, int technicianId, int rotationPosition)
+            throws IOException {
+        Profile patient = appointment.getPatient().getProfile();
+        byte[] firstName = utf8(patient.getFirstName());
+        byte[] lastName = utf8(patient.getLastName());
+        synchronized (this) {
+            begin(sequence, IMAGING, BOOKING_SIZE + firstName.length + lastName.length + 2 * Integer.BYTES + 1);
+            putBooking(appointment, firstName, lastName);
+            pending.putInt(technicianId);
+            pending.put((byte) appointment.getRoom().ordinal());
+            pending.putInt(rotationPosition);
+            return end();
+        }
+    }
+
+    /**
+     * Appends a cancellation.
+     *
+     * @param sequence  the change sequence.
+     * @param date      the date of the cancelled appointment.
+     * @param timeslot  the timeslot of the cancelled appointment.
+     * @param firstName the patient's first name as entered.
+     * @param lastName  the patient's last name as entered.
+     * @return the number of the record.
+     * @throws IOException if the journal has failed or is closed.
+     */
+    public long cancel(long sequence, Date date, Timeslot timeslot, String firstName, String lastName)
+            throws IOException {
+        byte[] first = utf8(firstName);
+        byte[] last = utf8(lastName);
+        synchronized (this) {
+            begin(sequence, CANCEL, BOOKING_SIZE - Integer.BYTES + first.length + last.length);
+            putSlot(date, timeslot, first, last);
+            return end();
+        }
+    }
+
+    /**
+     * Appends a rescheduling.
+     *
+     * @param sequence    the change sequence.
+     * @param date        the date of the appointment.
+     * @param timeslot    the timeslot it was moved from.
+     * @param firstName   the patient's first name as entered.
+     * @param lastName    the patient's last name as entered.
+     * @param newTimeslot the timeslot it was moved to.
+     * @return the number of the record.
+     * @throws IOException if the journal has failed or is closed.
+     */
+    public long reschedule(long sequence, Date date, Timeslot timeslot, String firstName, String lastName,
+            Timeslot newTimeslot) throws IOException {
+        byte[] first = utf8(firstName);
+        byte[] last = utf8(lastName);
+        synchronized (this) {
+            begin(sequence, RESCHEDULE, BOOKING_SIZE - Integer.BYTES + first.length + last.length + 1);
+            putSlot(date, timeslot, first, last);
+            pending.put((byte) newTimeslot.getIndex());
+            return end();
+        }
+    }
+
+    /**
+     * Appends a billing run, which settles the whole calendar.
+     *
+     * @param sequence the change sequence.
+     * @return the number of the record.
+     * @throws IOException if the journal has failed or is closed.
+     */
+    public synchronized long billing(long sequence) throws IOException {
+        begin(sequence, BILLING, 0);
+        return end();
+    }
+
+    /**
+     * Appends a billing run that settles the ledger and keeps the calendar.
+     *
+     * @param sequence the change sequence.
+     * @return the number of the record.
+     * @throws IOException if the journal has failed or is closed.
+     */
+    public synchronized long settle(long sequence) throws IOException {
+        begin(sequence, SETTLE, 0);
+        return end();
+    }
+
+    /**
+     * Waits until every record appended so far is on disk.
+     *
+     * @throws IOException if the records cannot be written.
+     */
+    public synchronized void sync() throws IOException {
+        sync(appended);
+    }
+
+    /**
+     * Waits until a record, and every record before it, is on disk. The
+     * records appended meanwhile are flushed with it.
+     *
+     * @param record the number of the record, as returned when it was
+     *               appended.
+     * @throws IOException if the records cannot be written.
+     */
+    public synchronized void sync(long record) throws IOException {
+        try {
+            while (durable < record && failure == null) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the journal.");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Removes every record once a snapshot holds their changes.
+     *
+     * @throws IOException if the journal cannot be cleared.
+     */
+    public synchronized void clear() throws IOException {
+        try {
+            while ((pending.position() > 0 || durable < appended) && failure == null) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the journal.");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        // Nothing is left to write, so the flusher stays idle until the lock is released
+        channel.truncate(HEADER_SIZE);
+        channel.position(HEADER_SIZE);
+        channel.force(true);
+    }
+
+    /**
+     * Gets the number of records replayed when the journal was opened.
+     *
+     * @return the number of records.
+     */
+    public int getReplayed() {
+        return replayed;
+    }
+
+    /**
+     * Gets the number of disk flushes made so far. With group commit this is
+     * at most the number of records appended.
+     *
+     * @return the number of flushes.
+     */
+    public synchronized long getFlushes() {
+        return flushes;
+    }
+
+    /**
+     * Writes the remaining records and closes the journal.
+     *
+     * @throws IOException if the remaining records cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+            }
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            channel.close();
+        }
+    }
+
+    // Starts a record with the given payload size after the operation
+    private void begin(long sequence, byte operation, int size) throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (closed) {
+            throw new IOException("The journal is closed.");
+        }
+        int needed = FRAME_SIZE + size;
+        if (pending.remaining() < needed) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + needed));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        recordStart = pending.position();
+        pending.putInt(0); // Length, filled in by end()
+        pending.putLong(sequence);
+        pending.put(operation);
+    }
+
+    // Fills in the length and checksum of the record and hands it to the flusher
+    private long end() {
+        int payloadStart = recordStart + Integer.BYTES;
+        int length = pending.position() - payloadStart;
+        pending.putInt(recordStart, length);
+        ByteBuffer payload = pending.duplicate();
+        payload.position(payloadStart).limit(payloadStart + length);
+        crc.reset();
+        crc.update(payload);
+        pending.putInt((int) crc.getValue());
+        appended++;
+        notifyAll();
+        return appended;
+    }
+
+    private void putBooking(Appointment appointment, byte[] firstName, byte[] lastName) {
+        putSlot(appointment.getDate(), appointment.getTimeslot(), firstName, lastName);
+        pending.putInt(appointment.getPatient().getProfile().getDob().toEpochDay());
+    }
+
+    private void putSlot(Date date, Timeslot timeslot, byte[] firstName, byte[] lastName) {
+        pending.putInt(date.toEpochDay());
+        pending.put((byte) timeslot.getIndex());
+        pending.putShort((short) firstName.length).put(firstName);
+        pending.putShort((short) lastName.length).put(lastName);
+    }
+
+    /**
+     * Writes and flushes the appended records in groups until the journal is
+     * closed.
+     */
+    private void flushLoop() {
+        while (true) {
+            long group;
+            synchronized (this) {
+                try {
+                    while (pending.position() == 0 && !closed) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    failure = new InterruptedIOException("The journal flusher was interrupted.");
+                    notifyAll();
+                    return;
+                }
+                if (pending.position() == 0) {
+                    return; // Closed with nothing left to write
+                }
+                ByteBuffer full = pending;
+                pending = writing;
+                writing = full;
+                group = appended;
+            }
+
+            try {
+                writing.flip();
+                while (writing.hasRemaining()) {
+                    channel.write(writing);
+                }
+                channel.force(false);
+                writing.clear();
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+
+            synchronized (this) {
+                durable = group;
+                flushes++;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Reads the payload of the next whole record with a valid checksum.
+     *
+     * @return the payload, positioned after the length, or null at the end of
+     *         the journal or at a damaged record.
+     */
+    private static ByteBuffer nextRecord(ByteBuffer buffer) {
+        if (buffer.remaining() < Integer.BYTES) {
+            return null;
+        }
+        int start = buffer.position();
+        int length = buffer.getInt(start);
+        if (length < Long.BYTES + 1 || buffer.remaining() - 2 * Integer.BYTES < length) {
+            return null;
+        }
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(start + Integer.BYTES).limit(start + Integer.BYTES + length);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if (buffer.getInt(start + Integer.BYTES + length) != (int) crc.getValue()) {
+            return null;
+        }
+        buffer.position(start + 2 * Integer.BYTES + length);
+        return payload;
+    }
+
+    private static void replay(ByteBuffer record, long sequence, Target target) throws IOException {
+        byte operation = record.get();
+        if (operation == BILLING) {
+            target.billing(sequence);
+            return;
+        }
+        if (operation == SETTLE) {
+            target.settle(sequence);
+            return;
+        }
+        int epochDay = record.getInt();
+        int slot = record.get();
+        String firstName = readString(record);
+        String lastName = readString(record);
+        switch (operation) {
+            case OFFICE: {
+                Profile patient = new Profile(firstName, lastName, Date.ofEpochDay(record.getInt()));
+                target.office(sequence, epochDay, slot, patient, record.getInt());
+                break;
+            }
+            case IMAGING: {
+                Profile patient = new Profile(firstName, lastName, Date.ofEpochDay(record.getInt()));
+                int technicianId = record.getInt();
+                Radiology room = ROOMS[record.get()];
+                target.imaging(sequence, epochDay, slot, patient, technicianId, room, record.getInt());
+                break;
+            }
+            case CANCEL:
+                target.cancel(sequence, epochDay, slot, firstName, lastName);
+                break;
+            case RESCHEDULE:
+                target.reschedule(sequence, epochDay, slot, firstName, lastName, record.get());
+                break;
+            default:
+                throw new IOException("Unknown journal operation " + operation + " in change " + sequence + ".");
+        }
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xffff];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
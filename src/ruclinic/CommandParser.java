@@ -0,0 +1,367 @@
+package ruclinic;
+
+import util.CsvTokenizer;
+
+/**
+ * Decodes the comma separated command lines of the clinic manager into
+ * primitive fields. The parser is meant to be kept and reused: decoding a line
+ * does not create any objects, and the text of a field is copied into a String
+ * only when it is asked for.
+ *
+ * The D, T, C and R lines share the layout
+ * CODE,M/D/YYYY,slot,firstName,lastName,M/D/YYYY,last
+ * where the last field is the NPI for D, the imaging service for T and the new
+ * slot for R. Numbers are read with the rules of Integer.parseInt, and a
+ * malformed date keeps the message Integer.parseInt or String.split would have
+ * given, so the handlers print the same errors as before.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+public class CommandParser {
+    public static final int DATE = 1;
+    public static final int TIMESLOT = 2;
+    public static final int FIRST_NAME = 3;
+    public static final int LAST_NAME = 4;
+    public static final int DOB = 5;
+    public static final int LAST = 6; // NPI, imaging service or new slot
+
+    private static final Command[] COMMANDS = Command.values();
+    private static final Radiology[] SERVICES = Radiology.values();
+
+    private CsvTokenizer tokens; // Field bounds of the current line
+    private Command command;
+    private DateField date; // The appointment date
+    private DateField dob; // The patient's date of birth
+    private int slot; // 1 to 12, 0 if the field is not a valid slot
+    private int newSlot; // 1 to 12, 0 if the field is not a valid slot
+    private Radiology service; // null if the field is not an imaging service
+
+    /**
+     * Constructs a parser with no line.
+     */
+    public CommandParser() {
+        this.tokens = new CsvTokenizer();
+        this.date = new DateField();
+        this.dob = new DateField();
+        this.command = Command.INVALID;
+    }
+
+    /**
+     * Decodes a command line, replacing the fields of the previous line.
+     *
+     * @param line the command line, without surrounding whitespace.
+     * @return the command of the line, INVALID if the code is unknown.
+     */
+    public Command parse(CharSequence line) {
+        tokens.reset(line);
+        command = decodeCommand();
+        date.clear();
+        dob.clear();
+        slot = 0;
+        newSlot = 0;
+        service = null;
+
+        int count = tokens.count();
+        if (count > DATE) {
+            date.decode(line, tokens.start(DATE), tokens.end(DATE));
+        }
+        if (count > TIMESLOT) {
+            slot = decodeSlot(TIMESLOT);
+        }
+        if (count > DOB) {
+            dob.decode(line, tokens.start(DOB), tokens.end(DOB));
+        }
+        if (count > LAST) {
+            if (command == Command.RESCHEDULE) {
+                newSlot = decodeSlot(LAST);
+            } else if (command == Command.IMAGING) {
+                service = decodeService(LAST);
+            }
+        }
+        return command;
+    }
+
+    /**
+     * Gets the command of the current line.
+     *
+     * @return the command.
+     */
+    public Command command() {
+        return command;
+    }
+
+    /**
+     * Gets the number of fields in the current line, including the code.
+     *
+     * @return the number of fields.
+     */
+    public int fieldCount() {
+        return tokens.count();
+    }
+
+    /**
+     * Gets the text of a field.
+     *
+     * @param index the field index, 0 for the code.
+     * @return the field text.
+     * @throws IndexOutOfBoundsException if the line has no such field.
+     */
+    public String field(int index) {
+        return tokens.token(index);
+    }
+
+    /**
+     * Checks if the appointment date field is a well formed M/D/YYYY date. The
+     * date may still not be a valid calendar date.
+     *
+     * @return true if the date was decoded, false otherwise.
+     */
+    public boolean hasDate() {
+        return date.failure == DateField.NONE;
+    }
+
+    /**
+     * Gets the message explaining why the appointment date could not be decoded.
+     *
+     * @return the message, or null if the date was decoded.
+     */
+    public String dateError() {
+        return date.error(tokens.line());
+    }
+
+    public int month() {
+        return date.month;
+    }
+
+    public int day() {
+        return date.day;
+    }
+
+    public int year() {
+        return date.year;
+    }
+
+    /**
+     * Checks if the date of birth field is a well formed M/D/YYYY date.
+     *
+     * @return true if the date of birth was decoded, false otherwise.
+     */
+    public boolean hasDob() {
+        return dob.failure == DateField.NONE;
+    }
+
+    /**
+     * Gets the message explaining why the date of birth could not be decoded.
+     *
+     * @return the message, or null if the date of birth was decoded.
+     */
+    public String dobError() {
+        return dob.error(tokens.line());
+    }
+
+    public int dobMonth() {
+        return dob.month;
+    }
+
+    public int dobDay() {
+        return dob.day;
+    }
+
+    public int dobYear() {
+        return dob.year;
+    }
+
+    /**
+     * Gets the timeslot number of the line.
+     *
+     * @return 1 to 12, or 0 if the field is not a valid timeslot.
+     */
+    public int slot() {
+        return slot;
+    }
+
+    /**
+     * Gets the new timeslot number of an R line.
+     *
+     * @return 1 to 12, or 0 if the field is not a valid timeslot.
+     */
+    public int newSlot() {
+        return newSlot;
+    }
+
+    /**
+     * Gets the imaging service of a T line, matched ignoring case.
+     *
+     * @return the service, or null if the field is not an imaging service.
+     */
+    public Radiology service() {
+        return service;
+    }
+
+    private Command decodeCommand() {
+        CharSequence line = tokens.line();
+        int start = tokens.start(0);
+        int length = tokens.end(0) - start;
+        for (Command candidate : COMMANDS) {
+            String code = candidate.getCode();
+            if (candidate != Command.INVALID && code.length() == length
+                    && regionMatches(line, start, code, false)) {
+                return candidate;
+            }
+        }
+        return Command.INVALID;
+    }
+
+    private int decodeSlot(int index) {
+        long value = parseInt(tokens.line(), tokens.start(index), tokens.end(index));
+        return value >= 1 && value <= 12 ? (int) value : 0;
+    }
+
+    private Radiology decodeService(int index) {
+        int start = tokens.start(index);
+        int length = tokens.end(index) - start;
+        for (Radiology candidate : SERVICES) {
+            String name = candidate.name();
+            if (name.length() == length && regionMatches(tokens.line(), start, name, true)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static boolean regionMatches(CharSequence line, int start, String text, boolean ignoreCase) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = line.charAt(start + i);
+            char expected = text.charAt(i);
+            if (c != expected && !(ignoreCase && Character.toUpperCase(c) == expected)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads an int from line[start, end) with the rules of Integer.parseInt.
+     *
+     * @return the value, or Long.MIN_VALUE if the text is not an int.
+     */
+    private static long parseInt(CharSequence line, int start, int end) {
+        if (start == end) {
+            return Long.MIN_VALUE;
+        }
+        boolean negative = false;
+        int i = start;
+        char first = line.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++i == end) {
+                return Long.MIN_VALUE;
+            }
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + (c - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return Long.MIN_VALUE;
+            }
+        }
+        value = negative ? -value : value;
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? Long.MIN_VALUE : value;
+    }
+
+    /**
+     * A M/D/YYYY field decoded in place.
+     */
+    private static final class DateField {
+        private static final int NONE = 0;
+        private static final int MISSING_PART = 1; // Fewer than three parts
+        private static final int NOT_A_NUMBER = 2; // A part is not an int
+
+        private static final int YEAR = 2; // Index of the year part
+        private static final int PARTS = 3;
+
+        private int month;
+        private int day;
+        private int year;
+        private int failure;
+        private int parts; // Number of parts String.split("/") would return
+        private int failedStart; // Bounds of the part that is not a number
+        private int failedEnd;
+        private final int[] starts = new int[PARTS];
+        private final int[] ends = new int[PARTS];
+
+        void clear() {
+            month = 0;
+            day = 0;
+            year = 0;
+            failure = NOT_A_NUMBER;
+            parts = 1;
+            failedStart = 0;
+            failedEnd = 0;
+        }
+
+        void decode(CharSequence line, int start, int end) {
+            // Find the first three parts and count the parts like String.split,
+            // which drops the empty parts at the end
+            int part = 0;
+            int partStart = start;
+            int lastNonEmpty = -1;
+            for (int i = start; i <= end; i++) {
+                if (i == end || line.charAt(i) == '/') {
+                    if (part < PARTS) {
+                        starts[part] = partStart;
+                        ends[part] = i;
+                    }
+                    if (i > partStart) {
+                        lastNonEmpty = part;
+                    }
+                    part++;
+                    partStart = i + 1;
+                }
+            }
+            parts = start == end ? 1 : lastNonEmpty + 1;
+
+            // Read the year first, as the original parsing did
+            if (parts < PARTS) {
+                failure = MISSING_PART;
+                return;
+            }
+            long y = read(line, YEAR);
+            long m = y == Long.MIN_VALUE ? y : read(line, 0);
+            long d = m == Long.MIN_VALUE ? m : read(line, 1);
+            if (d == Long.MIN_VALUE) {
+                return; // read recorded the failed part
+            }
+            year = (int) y;
+            month = (int) m;
+            day = (int) d;
+            failure = NONE;
+        }
+
+        private long read(CharSequence line, int part) {
+            long value = parseInt(line, starts[part], ends[part]);
+            if (value == Long.MIN_VALUE) {
+                failure = NOT_A_NUMBER;
+                failedStart = starts[part];
+                failedEnd = ends[part];
+            }
+            return value;
+        }
+
+        String error(CharSequence line) {
+            switch (failure) {
+                case MISSING_PART:
+                    return "Index " + YEAR + " out of bounds for length " + parts;
+                case NOT_A_NUMBER:
+                    return "For input string: \"" + line.subSequence(failedStart, failedEnd) + "\"";
+                default:
+                    return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package ruclinic;
+
+import java.util.IdentityHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongBinaryOperator;
+
+import util.Date;
+import util.TechnicianRotation;
+import util.Timeslot;
+
+/**
+ * Index of the occupied (date, timeslot) pairs of the calendar, used to answer
+ * the booking conflict checks without scanning the appointment list.
+ *
+ * Three kinds of occupancy are tracked:
+ * - a provider (doctor or technician) at a date and timeslot
+ * - a patient profile at a date and timeslot
+ * - an imaging room (location and radiology service) at a date and timeslot
+ *
+ * The index keeps a count per key instead of a flag so that it stays correct
+ * if the calendar ever holds two appointments on the same key. Keys are
+ * updated atomically, so the index can be shared by concurrent bookings; a
+ * check followed by a booking still needs the caller's lock on the slot.
+ *
+ * For imaging, each day with a booking also has bitsets with one bit per
+ * technician per timeslot and one bit per room (location and service) per
+ * timeslot, set while the key is held. The first free technician with a free
+ * room is then found in rotation order with a few word operations. A day's
+ * bitsets are changed one at a time and are dropped with its last bit.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+public class OccupancyIndex {
+    private static final Location[] LOCATIONS = Location.values();
+    private static final int SERVICES = Radiology.values().length; // Rooms per location
+    private static final LongBinaryOperator SET = (word, bit) -> word | bit;
+    private static final LongBinaryOperator CLEAR = (word, bit) -> word & ~bit;
+
+    private ConcurrentHashMap<Key, Integer> occupied; // Number of appointments holding each key
+    private ConcurrentHashMap<Integer, DayBits> days; // Imaging bitsets of each day, by epoch day
+    private IdentityHashMap<Provider, Integer> technicianBits; // Rotation position of each technician
+    private long[][] staffByLocation; // Technician bits of each location
+    private int words; // Words per bitset of technicians
+
+    /**
+     * Constructs an empty occupancy index.
+     */
+    public OccupancyIndex() {
+        this.occupied = new ConcurrentHashMap<>();
+        this.days = new ConcurrentHashMap<>();
+        this.technicianBits = new IdentityHashMap<>();
+        this.staffByLocation = new long[LOCATIONS.length][0];
+        this.words = 0;
+    }
+
+    /**
+     * Numbers the technicians by their position in the rotation, so they can
+     * be searched in rotation order. Must be called before any appointment is
+     * added, and before the index is shared.
+     *
+     * @param rotation the technician rotation.
+     */
+    public void indexTechnicians(TechnicianRotation rotation) {
+        words = (rotation.size() + 63) >>> 6;
+        staffByLocation = new long[LOCATIONS.length][words];
+        technicianBits.clear();
+        for (int position = 0; position < rotation.size(); position++) {
+            Technician technician = rotation.get(position);
+            technicianBits.put(technician, position);
+            staffByLocation[technician.getLocation().ordinal()][position >>> 6] |= 1L << position;
+        }
+        days.clear();
+    }
+
+    /**
+     * Records every key held by the given appointment.
+     *
+     * @param appointment the appointment that was added to the calendar.
+     */
+    public void add(Appointment appointment) {
+        Date date = appointment.getDate();
+        Timeslot timeslot = appointment.getTimeslot();
+        Provider provider = appointment.getProvider();
+        Integer position = technicianBits.get(provider);
+        if (position == null) {
+            increment(providerKey(provider, date, timeslot));
+        } else {
+            occupy(providerKey(provider, date, timeslot), date, false, technicianWord(timeslot, position),
+                    1L << position);
+        }
+        increment(patientKey(appointment.getPatient().getProfile(), date, timeslot));
+        if (appointment instanceof Imaging) {
+            Radiology room = ((Imaging) appointment).getRoom();
+            occupy(roomKey(provider.getLocation(), room, date, timeslot), date, true, timeslot.getIndex() - 1,
+                    roomBit(provider.getLocation(), room));
+        }
+    }
+
+    /**
+     * Releases every key held by the given appointment. Must be called before the
+     * appointment's date or timeslot is changed.
+     *
+     * @param appointment the appointment that was removed from the calendar.
+     */
+    public void remove(Appointment appointment) {
+        Date date = appointment.getDate();
+        Timeslot timeslot = appointment.getTimeslot();
+        Provider provider = appointment.getProvider();
+        Integer position = technicianBits.get(provider);
+        if (position == null) {
+            decrement(providerKey(provider, date, timeslot));
+        } else {
+            release(providerKey(provider, date, timeslot), date, false, technicianWord(timeslot, position),
+                    1L << position);
+        }
+        decrement(patientKey(appointment.getPatient().getProfile(), date, timeslot));
+        if (appointment instanceof Imaging) {
+            Radiology room = ((Imaging) appointment).getRoom();
+            release(roomKey(provider.getLocation(), room, date, timeslot), date, true, timeslot.getIndex() - 1,
+                    roomBit(provider.getLocation(), room));
+        }
+    }
+
+    /**
+     * Checks if the provider already has an appointment at the date and timeslot.
+     *
+     * @param provider the doctor or technician.
+     * @param date     the appointment date.
+     * @param timeslot the appointment timeslot.
+     * @return true if the provider is booked, false otherwise.
+     */
+    public boolean isProviderBooked(Provider provider, Date date, Timeslot timeslot) {
+        return occupied.containsKey(providerKey(provider, date, timeslot));
+    }
+
+    /**
+     * Checks if the patient already has an appointment at the date and timeslot.
+     *
+     * @param patient  the patient's profile.
+     * @param date     the appointment date.
+     * @param timeslot the appointment timeslot.
+     * @return true if the patient is booked, false otherwise.
+     */
+    public boolean isPatientBooked(Profile patient, Date date, Timeslot timeslot) {
+        return occupied.containsKey(patientKey(patient, date, timeslot));
+    }
+
+    /**
+     * Checks if the imaging room at the location is in use at the date and
+     * timeslot.
+     *
+     * @param location the location of the room.
+     * @param room     the imaging service of the room.
+     * @param date     the appointment date.
+     * @param timeslot the appointment timeslot.
+     * @return true if the room is in use, false otherwise.
+     */
+    public boolean isRoomBooked(Location location, Radiology room, Date date, Timeslot timeslot) {
+        return occupied.containsKey(roomKey(location, room, date, timeslot));
+    }
+
+    /**
+     * Finds the first technician, in rotation order from a position, who is
+     * free at the date and timeslot and whose location has the room free.
+     *
+     * @param room     the imaging service.
+     * @param date     the appointment date.
+     * @param timeslot the appointment timeslot.
+     * @param start    the rotation position to search from.
+     * @return the rotation position of the technician, or -1 if there is none.
+     */
+    public int findFreeTechnician(Radiology room, Date date, Timeslot timeslot, int start) {
+        if (words == 0) {
+            return -1;
+        }
+        DayBits day = days.get(date.toEpochDay());
+        int slot = timeslot.getIndex() - 1;
+        long busyRooms = day == null ? 0 : day.rooms.get(slot);
+
+        // Technicians at the locations whose room is free, less the busy ones
+        long[] free = new long[words];
+        for (Location location : LOCATIONS) {
+            if ((busyRooms & roomBit(location, room)) == 0) {
+                long[] staff = staffByLocation[location.ordinal()];
+                for (int w = 0; w < words; w++) {
+                    free[w] |= staff[w];
+                }
+            }
+        }
+        if (day != null) {
+            for (int w = 0; w < words; w++) {
+                free[w] &= ~day.technicians.get(slot * words + w);
+            }
+        }
+
+        // First bit at or after the start, then wrap around to the head
+        int first = start >>> 6;
+        long bits = free[first] & (-1L << start);
+        if (bits != 0) {
+            return (first << 6) + Long.numberOfTrailingZeros(bits);
+        }
+        for (int i = 1; i <= words; i++) {
+            int w = (first + i) % words;
+            if (free[w] != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(free[w]);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes every key from the index.
+     */
+    public void clear() {
+        occupied.clear();
+        days.clear();
+    }
+
+    private void increment(Key key) {
+        occupied.merge(key, 1, Integer::sum);
+    }
+
+    // The key is removed with its last appointment
+    private void decrement(Key key) {
+        occupied.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+    }
+
+    // Increments a key and sets its bit in the day's bitsets when it becomes held
+    private void occupy(Key key, Date date, boolean room, int word, long bit) {
+        days.compute(date.toEpochDay(), (epochDay, day) -> {
+            DayBits bits = day == null ? new DayBits(words) : day;
+            occupied.compute(key, (k, count) -> {
+                if (count == null) {
+                    bits.set(room, word, bit);
+                    return 1;
+                }
+                return count + 1;
+            });
+            return bits;
+        });
+    }
+
+    // Decrements a key and clears its bit with its last appointment, dropping
+    // the day's bitsets once they are empty
+    private void release(Key key, Date date, boolean room, int word, long bit) {
+        boolean[] found = new boolean[1];
+        days.computeIfPresent(date.toEpochDay(), (epochDay, bits) -> {
+            found[0] = true;
+            occupied.computeIfPresent(key, (k, count) -> {
+                if (count == 1) {
+                    bits.clear(room, word, bit);
+                    return null;
+                }
+                return count - 1;
+            });
+            return bits.held == 0 ? null : bits;
+        });
+        if (!found[0]) {
+            decrement(key); // No bitsets to clear
+        }
+    }
+
+    private int technicianWord(Timeslot timeslot, int position) {
+        return (timeslot.getIndex() - 1) * words + (position >>> 6);
+    }
+
+    private static long roomBit(Location location, Radiology room) {
+        return 1L << (location.ordinal() * SERVICES + room.ordinal());
+    }
+
+    // Providers are loaded once from the roster, so the instance is the identity
+    private static Key providerKey(Provider provider, Date date, Timeslot timeslot) {
+        return new Key(provider, null, date, timeslot);
+    }
+
+    // Profiles cache their hash, and interned ones compare by identity first
+    private static Key patientKey(Profile profile, Date date, Timeslot timeslot) {
+        return new Key(profile, null, date, timeslot);
+    }
+
+    private static Key roomKey(Location location, Radiology room, Date date, Timeslot timeslot) {
+        return new Key(location, room, date, timeslot);
+    }
+
+    /**
+     * Busy technicians and rooms of one day. It is only changed inside a
+     * compute() of its key, one change at a time.
+     */
+    private static final class DayBits {
+        private final AtomicLongArray technicians; // The technician words of each timeslot in turn
+        private final AtomicLongArray rooms; // One word per timeslot, one bit per location and service
+        private int held; // Bits set in both bitsets
+
+        DayBits(int words) {
+            this.technicians = new AtomicLongArray(Timeslot.COUNT * words);
+            this.rooms = new AtomicLongArray(Timeslot.COUNT);
+        }
+
+        void set(boolean room, int word, long bit) {
+            (room ? rooms : technicians).getAndAccumulate(word, bit, SET);
+            held++;
+        }
+
+        void clear(boolean room, int word, long bit) {
+            (room ? rooms : technicians).getAndAccumulate(word, bit, CLEAR);
+            held--;
+        }
+    }
+
+    /**
+     * Composite key of up to two owner objects, the date and the timeslot.
+     */
+    private static final class Key {
+        private final Object first;
+        private final Object second;
+        private final int day;
+        private final int slot;
+        private final int hash;
+
+        Key(Object first, Object second, Date date, Timeslot timeslot) {
+            this.first = first;
+            this.second = second;
+            this.day = date.toEpochDay();
+            this.slot = timeslot.getIndex();
+            int h = first.hashCode();
+            h = 31 * h + (second == null ? 0 : second.hashCode());
+            h = 31 * h + day;
+            this.hash = 31 * h + slot;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+            Key that = (Key) obj;
+            return day == that.day && slot == that.slot && first.equals(that.first)
+                    && (second == null ? that.second == null : second.equals(that.second));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
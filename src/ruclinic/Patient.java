@@ -4,14 +4,15 @@ import util.Date;
 
 /**
  * The Patient class represents a patient in the clinic, containing a profile
- * and a linked list of completed visits.
+ * and the store of completed visits.
  * This class inherits from Person.
  * 
  * @author Paldeep Sekhon
  * @author Aditya Ponni
  */
 public class Patient extends Person {
-    private Visit visits; // A linked list of visits (completed appointments)
+    private VisitStore visits; // Visits (completed appointments), indexed by appointment
+    private int id; // Id given by the patient registry, -1 if not registered
 
     /**
      * Constructs a Patient with a specified profile.
@@ -19,8 +20,28 @@ public class Patient extends Person {
      * @param profile The profile of the patient (inherited from Person).
      */
     public Patient(Profile profile) {
+        this(profile, -1);
+    }
+
+    /**
+     * Constructs a registered Patient with a specified profile and id.
+     * 
+     * @param profile The profile of the patient.
+     * @param id      The id given by the patient registry.
+     */
+    Patient(Profile profile, int id) {
         super(profile); // Call to Person constructor
-        this.visits = null;
+        this.visits = new VisitStore();
+        this.id = id;
+    }
+
+    /**
+     * Gets the id the patient registry gave the patient.
+     * 
+     * @return The patient id, or -1 if the patient is not registered.
+     */
+    public int getId() {
+        return id;
     }
 
     // Add methods to retrieve patient details (first name, last name, date of
@@ -55,82 +76,34 @@ public class Patient extends Person {
     }
 
     /**
-     * Adds a visit to the linked list of visits. If the visit already exists, it
-     * will not be added.
+     * Adds a visit to the patient's visits. If a visit for the same appointment
+     * already exists, it will not be added.
      * 
-     * @param visit The visit to be added to the list.
+     * @param visit The visit to be added.
      */
     public void addVisit(Visit visit) {
-        if (visits == null) {
-            visits = visit;
-        } else {
-            Visit current = visits;
-            while (current.getNext() != null) {
-                if (current.getAppointment().equals(visit.getAppointment())) {
-                    return; // Duplicate visit, do not add
-                }
-                current = current.getNext();
-            }
-            if (!current.getAppointment().equals(visit.getAppointment())) {
-                current.setNext(visit);
-            }
-        }
+        visits.add(visit);
     }
 
     /**
-     * Removes a visit corresponding to a canceled appointment from the linked list.
+     * Removes the visit corresponding to a canceled appointment.
      * 
      * @param appointment The appointment to be removed.
+     * @return The removed visit, or null if the appointment has no visit.
      */
-    public void removeVisit(Appointment appointment) {
-        Visit current = visits;
-        Visit previous = null;
-
-        while (current != null) {
-            if (current.getAppointment().equals(appointment)) {
-                if (previous == null) {
-                    visits = current.getNext(); // Remove first visit
-                } else {
-                    previous.setNext(current.getNext()); // Remove current visit
-                }
-                current = null; // Nullify to help garbage collection
-                return;
-            }
-            previous = current;
-            current = current.getNext();
-        }
+    public Visit removeVisit(Appointment appointment) {
+        return visits.remove(appointment);
     }
 
     /**
      * Gets the total charge for all visits based on the provider's specialty or
-     * rate.
-     * It handles both doctors (using specialty charge) and technicians (using rate
-     * per visit).
+     * rate. The total is kept by the visit store as visits are added and
+     * removed.
      * 
      * @return The total charge for the patient's visits.
      */
     public int charge() {
-        int totalCharge = 0;
-        Visit currentVisit = visits;
-
-        while (currentVisit != null) {
-            Provider provider = currentVisit.getAppointment().getProvider();
-
-            // Check if the provider is a Doctor
-            if (provider instanceof Doctor) {
-                Doctor doctor = (Doctor) provider; // Cast to Doctor to access getSpecialty()
-                totalCharge += doctor.getSpecialty().getCharge(); // Get the charge from the doctor's specialty
-            }
-            // Handle Technician case
-            else if (provider instanceof Technician) {
-                Technician technician = (Technician) provider; // Cast to Technician to access getRatePerVisit()
-                totalCharge += technician.getRatePerVisit(); // Add the rate per visit for the technician
-            }
-
-            currentVisit = currentVisit.getNext(); // Move to the next visit in the list
-        }
-
-        return totalCharge;
+        return visits.getTotalCharge();
     }
 
     /**
@@ -151,15 +124,31 @@ public class Patient extends Person {
      * @return The head of the linked list of visits.
      */
     public Visit getVisits() {
-        return visits;
+        return visits.getFirst();
     }
 
     /**
-     * Sets the linked list of visits for the patient.
+     * Sets the linked list of visits for the patient, replacing the current
+     * visits. Duplicate visits in the list are dropped.
      * 
      * @param visits The linked list of visits to set.
      */
     public void setVisits(Visit visits) {
-        this.visits = visits;
+        this.visits.clear();
+        Visit current = visits;
+        while (current != null) {
+            Visit next = current.getNext(); // Read before the store relinks the visit
+            this.visits.add(current);
+            current = next;
+        }
+    }
+
+    /**
+     * Gets the store of visits for the patient.
+     * 
+     * @return The visit store.
+     */
+    public VisitStore getVisitStore() {
+        return visits;
     }
 }
@@ -0,0 +1,79 @@
+package ruclinic;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import util.Date;
+
+/**
+ * Registry of every patient the clinic has seen. A patient is registered the
+ * first time their first name, last name and date of birth are seen, and gets
+ * a stable id in registration order. After that the same Patient instance,
+ * with the same Profile and visit history, is handed out every time, so
+ * patients are compared by identity and repeat patients take no more memory.
+ *
+ * Patients are registered atomically, so the registry can be shared by
+ * concurrent bookings.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+public class PatientRegistry {
+    private ConcurrentHashMap<Profile, Patient> patients; // Patients by profile
+    private AtomicInteger nextId; // Id of the next patient registered
+
+    /**
+     * Constructs an empty registry.
+     */
+    public PatientRegistry() {
+        this.patients = new ConcurrentHashMap<>();
+        this.nextId = new AtomicInteger();
+    }
+
+    /**
+     * Gets the patient with a name and date of birth, registering them if they
+     * were not seen before.
+     *
+     * @param firstName the patient's first name.
+     * @param lastName  the patient's last name.
+     * @param dob       the patient's date of birth.
+     * @return the registered patient.
+     */
+    public Patient intern(String firstName, String lastName, Date dob) {
+        return intern(new Profile(firstName, lastName, dob));
+    }
+
+    /**
+     * Gets the patient with a profile, registering them with that profile if
+     * they were not seen before.
+     *
+     * @param profile the patient's profile.
+     * @return the registered patient.
+     */
+    public Patient intern(Profile profile) {
+        Patient patient = patients.get(profile);
+        return patient != null ? patient
+                : patients.computeIfAbsent(profile, key -> new Patient(profile, nextId.getAndIncrement()));
+    }
+
+    /**
+     * Gets a patient that was already registered.
+     *
+     * @param firstName the patient's first name.
+     * @param lastName  the patient's last name.
+     * @param dob       the patient's date of birth.
+     * @return the patient, or null if they were never registered.
+     */
+    public Patient find(String firstName, String lastName, Date dob) {
+        return patients.get(new Profile(firstName, lastName, dob));
+    }
+
+    /**
+     * Gets the number of registered patients.
+     *
+     * @return The number of patients.
+     */
+    public int size() {
+        return patients.size();
+    }
+}
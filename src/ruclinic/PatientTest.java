@@ -0,0 +1,84 @@
+package ruclinic;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import util.Date;
+import util.Timeslot;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatientTest {
+    private Patient patient;
+    private Doctor doctor;
+    private Technician technician;
+
+    @BeforeEach
+    void setUp() {
+        patient = new Patient(new Profile("John", "Doe", new Date(1990, 5, 15)));
+        doctor = new Doctor(new Profile("Andrew", "Patel", new Date(1975, 3, 2)), Location.BRIDGEWATER,
+                Specialty.FAMILY, "01");
+        technician = new Technician(new Profile("Alice", "Smith", new Date(1990, 10, 12)), Location.EDISON, 120);
+    }
+
+    private Visit visit(int slot, Provider provider) {
+        return new Visit(new Appointment(new Date(2024, 11, 4), Timeslot.fromIndex(slot), patient, provider));
+    }
+
+    @Test
+    void duplicateVisitIsNotAdded() {
+        patient.addVisit(visit(1, doctor));
+        patient.addVisit(visit(2, technician));
+        patient.addVisit(visit(1, doctor));
+        assertEquals(2, patient.getVisitStore().size(), "The duplicate visit should be dropped.");
+        assertEquals(370, patient.charge(), "Each visit should be charged once.");
+    }
+
+    @Test
+    void removeKeepsOrderAndCharge() {
+        Visit first = visit(1, doctor);
+        Visit second = visit(2, technician);
+        Visit third = visit(3, doctor);
+        patient.addVisit(first);
+        patient.addVisit(second);
+        patient.addVisit(third);
+
+        patient.removeVisit(visit(2, technician).getAppointment());
+        assertSame(first, patient.getVisits());
+        assertSame(third, first.getNext(), "The visits around the removed one should be linked.");
+        assertEquals(500, patient.charge());
+
+        patient.removeVisit(first.getAppointment());
+        patient.removeVisit(third.getAppointment());
+        assertNull(patient.getVisits());
+        assertEquals(0, patient.charge());
+    }
+
+    @Test
+    void movedVisitIsFoundAtNewSlot() {
+        Visit visit = visit(1, doctor);
+        Appointment appointment = visit.getAppointment();
+        patient.addVisit(visit);
+
+        assertSame(visit, patient.removeVisit(appointment));
+        appointment.setTimeSlot(Timeslot.fromIndex(4));
+        patient.addVisit(visit);
+        assertTrue(patient.getVisitStore().contains(visit(4, doctor).getAppointment()));
+        assertSame(visit, patient.removeVisit(appointment));
+        assertEquals(0, patient.charge());
+    }
+
+    @Test
+    void registryReusesPatient() {
+        PatientRegistry registry = new PatientRegistry();
+        Patient first = registry.intern("John", "Doe", new Date(1990, 5, 15));
+        Patient again = registry.intern(new Profile("John", "Doe", new Date(1990, 5, 15)));
+        Patient other = registry.intern("Jane", "Doe", new Date(1990, 5, 15));
+        assertSame(first, again, "The same patient should be handed out again.");
+        assertSame(first.getProfile(), again.getProfile());
+        assertNotSame(first, other);
+        assertEquals(0, first.getId());
+        assertEquals(1, other.getId());
+        assertEquals(2, registry.size());
+        assertNull(registry.find("John", "Doe", new Date(1990, 5, 16)));
+    }
+}
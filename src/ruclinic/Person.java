@@ -94,6 +94,16 @@ public class Person implements Comparable<Person> {
         return profile.equals(person.profile);
     }
 
+    /**
+     * Returns a hash code for the person, consistent with equals().
+     * 
+     * @return The hash code of the person's profile.
+     */
+    @Override
+    public int hashCode() {
+        return profile.hashCode();
+    }
+
     /**
      * Returns a string representation of the person's profile.
      * 
@@ -14,6 +14,7 @@ public class Profile implements Comparable<Profile> {
     private String fname;
     private String lname;
     private Date dob;
+    private int hash; // Computed once, the fields never change
 
     /**
      * Constructor for the Profile class.
@@ -26,6 +27,9 @@ public class Profile implements Comparable<Profile> {
         this.fname = fname;
         this.lname = lname;
         this.dob = dob;
+        int h = fname.hashCode();
+        h = 31 * h + lname.hashCode();
+        this.hash = 31 * h + dob.hashCode();
     }
 
     /**
@@ -49,6 +53,18 @@ public class Profile implements Comparable<Profile> {
                 dob.equals(profile.dob);
     }
 
+    /**
+     * Returns a hash code for the profile, consistent with equals(). It is
+     * computed from the first name, last name and date of birth when the
+     * profile is built.
+     * 
+     * @return The hash code of the profile.
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
     /**
      * Implements the compareTo() method for comparing two profiles.
      * Comparison is done based on last name, then first name, and then date of
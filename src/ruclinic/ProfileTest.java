@@ -33,4 +33,11 @@ class ProfileTest {
         assertEquals(0, profile1.compareTo(profile4), "Profile1 should be equal to Profile4.");
     }
 
+    @Test
+    public void testHashCodeMatchesEquals() {
+        assertEquals(profile1.hashCode(), profile4.hashCode(), "Equal profiles should have the same hash code.");
+        assertEquals(new Patient(profile1).hashCode(), new Patient(profile4).hashCode(),
+                "Equal patients should have the same hash code.");
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package ruclinic;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Credit each provider has earned from the appointments in the calendar,
+ * kept up to date as appointments are booked and cancelled, so the credits
+ * are read in O(1) per provider.
+ *
+ * Each provider has a visit count and a total credit, the sum of the
+ * provider's rate over those visits. The counters are indexed by registry id
+ * and updated atomically, so they can be shared by concurrent bookings. A
+ * rescheduled appointment keeps its provider and so its credit.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+public class ProviderCredits {
+    private ProviderRegistry providers; // Gives the index of each provider
+    private AtomicIntegerArray visits; // Visits of each provider, by registry id
+    private AtomicLongArray credit; // Credit of each provider in dollars, by registry id
+
+    /**
+     * Constructs zero credits for every provider of a loaded registry.
+     *
+     * @param providers the provider registry.
+     */
+    public ProviderCredits(ProviderRegistry providers) {
+        this.providers = providers;
+        this.visits = new AtomicIntegerArray(providers.size());
+        this.credit = new AtomicLongArray(providers.size());
+    }
+
+    /**
+     * Credits the provider of a booked appointment for the visit.
+     *
+     * @param appointment the appointment that was added to the calendar.
+     */
+    public void add(Appointment appointment) {
+        post(appointment.getProvider(), 1);
+    }
+
+    /**
+     * Takes back the credit of a cancelled appointment.
+     *
+     * @param appointment the appointment that was removed from the calendar.
+     */
+    public void remove(Appointment appointment) {
+        post(appointment.getProvider(), -1);
+    }
+
+    /**
+     * Resets every provider's credit to zero.
+     */
+    public void clear() {
+        for (int id = 0; id < visits.length(); id++) {
+            visits.set(id, 0);
+            credit.set(id, 0);
+        }
+    }
+
+    /**
+     * Gets the number of visits a provider has in the calendar.
+     *
+     * @param provider the provider.
+     * @return the number of visits.
+     */
+    public int getVisits(Provider provider) {
+        int id = providers.idOf(provider);
+        return id < 0 ? 0 : visits.get(id);
+    }
+
+    /**
+     * Gets the credit a provider has earned from the appointments in the
+     * calendar.
+     *
+     * @param provider the provider.
+     * @return the credit in dollars.
+     */
+    public long getCredit(Provider provider) {
+        int id = providers.idOf(provider);
+        return id < 0 ? 0 : credit.get(id);
+    }
+
+    private void post(Provider provider, int visitChange) {
+        int id = providers.idOf(provider);
+        visits.addAndGet(id, visitChange);
+        credit.addAndGet(id, (long) visitChange * provider.rate());
+    }
+}
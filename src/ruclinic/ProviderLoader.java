@@ -0,0 +1,247 @@
+package ruclinic;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import util.Date;
+import util.TechnicianRotation;
+
+/**
+ * Bulk loader for the provider roster (providers.txt).
+ *
+ * The file is memory-mapped and decoded once, the line bounds are found in a
+ * single scan, and the lines are parsed into providers in parallel chunks. The
+ * providers are then registered and the technicians added to the rotation in
+ * one pass in file order, so the registry ids and the rotation order are the
+ * same as when the file is read line by line.
+ *
+ * Each line is
+ * D firstName lastName M/D/YYYY location specialty npi
+ * T firstName lastName M/D/YYYY location ratePerVisit
+ * with the fields separated by whitespace. Lines of other types are ignored. A
+ * line that cannot be parsed stops the load: the providers before it are kept
+ * and its exception is thrown.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+public class ProviderLoader {
+    public static final int REPORT_INTERVAL = 10000; // Records per reported load time
+    private static final int CHUNK_LINES = 4096; // Lines parsed by one task
+
+    private int records; // Providers registered by the last load
+    private long elapsedNanos; // Duration of the last load
+
+    /**
+     * Loads the providers of a roster file into the registry, and the
+     * technicians into the rotation.
+     *
+     * @param file        the roster file.
+     * @param registry    the registry to add the providers to.
+     * @param technicians the technician rotation to add the technicians to.
+     * @throws IOException      if the file cannot be read.
+     * @throws RuntimeException the exception of the first line that cannot be
+     *                          parsed, after the lines before it are loaded.
+     */
+    public void load(Path file, ProviderRegistry registry, TechnicianRotation technicians) throws IOException {
+        long start = System.nanoTime();
+        records = 0;
+        try {
+            CharBuffer text = read(file);
+            int[] lineBounds = findLines(text);
+            int lines = lineBounds.length / 2;
+
+            // Each slot holds the parsed provider, null for an ignored line, or the
+            // exception of a line that cannot be parsed
+            Object[] parsed = new Object[lines];
+            int chunks = (lines + CHUNK_LINES - 1) / CHUNK_LINES;
+            IntStream range = IntStream.range(0, chunks);
+            if (chunks > 1) {
+                range = range.parallel();
+            }
+            range.forEach(chunk -> {
+                int end = Math.min(lines, (chunk + 1) * CHUNK_LINES);
+                for (int line = chunk * CHUNK_LINES; line < end; line++) {
+                    parsed[line] = parseLine(text, lineBounds[2 * line], lineBounds[2 * line + 1]);
+                }
+            });
+
+            for (Object result : parsed) {
+                if (result instanceof RuntimeException) {
+                    throw (RuntimeException) result;
+                }
+                if (result != null) {
+                    Provider provider = (Provider) result;
+                    registry.register(provider);
+                    if (provider instanceof Technician) {
+                        technicians.addTechnician((Technician) provider);
+                    }
+                    records++;
+                }
+            }
+        } finally {
+            elapsedNanos = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Gets the number of providers registered by the last load.
+     *
+     * @return the number of providers.
+     */
+    public int getRecords() {
+        return records;
+    }
+
+    /**
+     * Gets the duration of the last load.
+     *
+     * @return the duration in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Describes the last load with its time per 10,000 records.
+     *
+     * @return the load report.
+     */
+    public String report() {
+        double millis = elapsedNanos / 1e6;
+        double perInterval = records == 0 ? 0.0 : millis * REPORT_INTERVAL / records;
+        return String.format("Loaded %d providers in %.1f ms (%.1f ms per %,d records).",
+                records, millis, perInterval, REPORT_INTERVAL);
+    }
+
+    // Maps the file and decodes it with the platform charset, as Scanner does
+    private static CharBuffer read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return Charset.defaultCharset().decode(bytes);
+        }
+    }
+
+    /**
+     * Finds the start and end of every line, ending at \n, \r\n or \r.
+     *
+     * @return the bounds, two ints per line.
+     */
+    private static int[] findLines(CharBuffer text) {
+        int length = text.length();
+        int[] bounds = new int[64];
+        int count = 0;
+        int start = 0;
+        int i = 0;
+        while (i < length) {
+            char c = text.get(i);
+            if (c == '\n' || c == '\r') {
+                if (count + 2 > bounds.length) {
+                    bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                }
+                bounds[count++] = start;
+                bounds[count++] = i;
+                i += (c == '\r' && i + 1 < length && text.get(i + 1) == '\n') ? 2 : 1;
+                start = i;
+            } else {
+                i++;
+            }
+        }
+        if (start < length) {
+            if (count + 2 > bounds.length) {
+                bounds = Arrays.copyOf(bounds, count + 2);
+            }
+            bounds[count++] = start;
+            bounds[count++] = length;
+        }
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * Parses one roster line.
+     *
+     * @return the provider, null for an empty or ignored line, or the exception
+     *         thrown while parsing the line.
+     */
+    private static Object parseLine(CharBuffer text, int start, int end) {
+        String line = text.subSequence(start, end).toString().trim();
+        if (line.isEmpty())
+            return null; // Ignore empty lines
+
+        try {
+            String[] tokens = splitWhitespace(line);
+
+            if (tokens[0].equalsIgnoreCase("D")) {
+                // Doctor
+                String firstName = tokens[1];
+                String lastName = tokens[2];
+                String dob = tokens[3]; // format: MM/DD/YYYY
+                Location location = Location.valueOf(tokens[4].toUpperCase()); // Using the enum
+                Specialty specialty = Specialty.valueOf(tokens[5].toUpperCase()); // Get specialty enum
+                String npi = tokens[6];
+                Profile profile = new Profile(firstName, lastName, parseDob(dob));
+                return new Doctor(profile, location, specialty, npi);
+            } else if (tokens[0].equalsIgnoreCase("T")) {
+                // Technician
+                String firstName = tokens[1];
+                String lastName = tokens[2];
+                String dob = tokens[3]; // format: MM/DD/YYYY
+                Location location = Location.valueOf(tokens[4].toUpperCase()); // Using the enum
+                int ratePerVisit = Integer.parseInt(tokens[5]);
+                Profile profile = new Profile(firstName, lastName, parseDob(dob));
+                return new Technician(profile, location, ratePerVisit);
+            }
+            return null; // Not a provider line
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Splits a trimmed line on runs of whitespace, like split("\\s+") without
+     * the regular expression.
+     */
+    private static String[] splitWhitespace(String line) {
+        int count = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (!isWhitespace(line.charAt(i)) && (i == 0 || isWhitespace(line.charAt(i - 1)))) {
+                count++;
+            }
+        }
+        String[] tokens = new String[count];
+        int token = 0;
+        int i = 0;
+        while (token < count) {
+            while (isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < line.length() && !isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            tokens[token++] = line.substring(start, i);
+        }
+        return tokens;
+    }
+
+    // The characters matched by \s
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    // Parses a M/D/YYYY date of birth
+    private static Date parseDob(String dob) {
+        String[] dobParts = dob.split("/");
+        int month = Integer.parseInt(dobParts[0]);
+        int day = Integer.parseInt(dobParts[1]);
+        int year = Integer.parseInt(dobParts[2]);
+        return new Date(year, month, day);
+    }
+}
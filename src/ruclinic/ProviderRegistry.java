@@ -0,0 +1,172 @@
+package ruclinic;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+
+import util.Sort;
+
+/**
+ * Registry of all providers in the clinic. Each provider gets a stable id in
+ * registration order, and the registry keeps the lookups the commands need:
+ * - Doctor by NPI
+ * - Technician by identity (its id) and by location
+ * - Provider by location, Doctor by specialty
+ *
+ * Iterating the registry returns the providers ordered by last name, the order
+ * used by the provider listings. The order is kept as providers are
+ * registered, so iterating never changes the registry and a loaded registry
+ * can be listed by several threads at once.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+public class ProviderRegistry implements Iterable<Provider> {
+    private util.List<Provider> providers; // Providers by id
+    private util.List<Provider> sorted; // Providers ordered by last name
+    private HashMap<String, Doctor> doctorsByNpi;
+    private IdentityHashMap<Provider, Integer> ids;
+    private EnumMap<Location, util.List<Provider>> byLocation;
+    private EnumMap<Location, util.List<Technician>> techniciansByLocation;
+    private EnumMap<Specialty, util.List<Doctor>> doctorsBySpecialty;
+
+    /**
+     * Constructs an empty registry.
+     */
+    public ProviderRegistry() {
+        this.providers = new util.List<>();
+        this.sorted = new util.List<>();
+        this.doctorsByNpi = new HashMap<>();
+        this.ids = new IdentityHashMap<>();
+        this.byLocation = new EnumMap<>(Location.class);
+        this.techniciansByLocation = new EnumMap<>(Location.class);
+        this.doctorsBySpecialty = new EnumMap<>(Specialty.class);
+        for (Location location : Location.values()) {
+            byLocation.put(location, new util.List<>());
+            techniciansByLocation.put(location, new util.List<>());
+        }
+        for (Specialty specialty : Specialty.values()) {
+            doctorsBySpecialty.put(specialty, new util.List<>());
+        }
+    }
+
+    /**
+     * Adds a provider to the registry and indexes it.
+     *
+     * @param provider the doctor or technician to add.
+     * @return the id assigned to the provider.
+     */
+    public int register(Provider provider) {
+        if (provider instanceof Doctor) {
+            Doctor doctor = (Doctor) provider;
+            doctorsByNpi.putIfAbsent(doctor.getNpi(), doctor); // The first doctor with an NPI wins
+            doctorsBySpecialty.get(doctor.getSpecialty()).add(doctor);
+        } else if (provider instanceof Technician) {
+            techniciansByLocation.get(provider.getLocation()).add((Technician) provider);
+        }
+        int id = providers.size();
+        providers.add(provider);
+        ids.put(provider, id);
+        byLocation.get(provider.getLocation()).add(provider);
+        sorted.add(insertionPoint(provider), provider);
+        return id;
+    }
+
+    /**
+     * Finds the doctor with the given NPI.
+     *
+     * @param npi the National Provider Identification number.
+     * @return the doctor, or null if no doctor has that NPI.
+     */
+    public Doctor findDoctorByNpi(String npi) {
+        return doctorsByNpi.get(npi);
+    }
+
+    /**
+     * Gets the id of a registered provider.
+     *
+     * @param provider the provider.
+     * @return the provider's id, or -1 if the provider is not registered.
+     */
+    public int idOf(Provider provider) {
+        Integer id = ids.get(provider);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Gets the provider with the given id.
+     *
+     * @param id the provider id.
+     * @return the provider.
+     * @throws IndexOutOfBoundsException if no provider has that id.
+     */
+    public Provider get(int id) {
+        return providers.get(id);
+    }
+
+    /**
+     * Gets the providers practicing at a location.
+     *
+     * @param location the location.
+     * @return the doctors and technicians at the location.
+     */
+    public util.List<Provider> atLocation(Location location) {
+        return byLocation.get(location);
+    }
+
+    /**
+     * Gets the technicians working at a location.
+     *
+     * @param location the location.
+     * @return the technicians at the location.
+     */
+    public util.List<Technician> techniciansAt(Location location) {
+        return techniciansByLocation.get(location);
+    }
+
+    /**
+     * Gets the doctors of a specialty.
+     *
+     * @param specialty the specialty.
+     * @return the doctors with the specialty.
+     */
+    public util.List<Doctor> doctorsWith(Specialty specialty) {
+        return doctorsBySpecialty.get(specialty);
+    }
+
+    /**
+     * Gets the number of registered providers.
+     *
+     * @return the number of providers.
+     */
+    public int size() {
+        return providers.size();
+    }
+
+    /**
+     * Returns an iterator over the providers ordered by last name.
+     *
+     * @return An iterator over the providers.
+     */
+    @Override
+    public Iterator<Provider> iterator() {
+        return sorted.iterator();
+    }
+
+    // Index after the providers that sort before or with the provider, so
+    // providers with the same last name stay in registration order
+    private int insertionPoint(Provider provider) {
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Sort.BY_PROVIDER_LAST_NAME.compare(sorted.get(mid), provider) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
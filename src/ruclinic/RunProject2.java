@@ -1,14 +1,115 @@
 package ruclinic;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
 /**
  * Class to run the project
- * 
+ *
+ * With no arguments the clinic manager reads commands from the terminal.
+ * Otherwise it runs in batch mode:
+ * RunProject2 [options] commandFile [outputFile]
+ * where a command file of "-" reads the commands from standard input and the
+ * output goes to standard output when no output file is given.
+ *
+ * Options, before the files:
+ * --snapshot=FILE          restore the calendar from FILE and save it there
+ * --snapshot-interval=N    save a snapshot every N changes (default 10000)
+ * --journal=FILE           journal every change to FILE and replay it at startup
+ * --keep-calendar          PS settles the balances and keeps the appointments
+ *
  * @author Paldeep Sekhon
  * @author Aditya Ponni
  */
 
 public class RunProject2 {
-    public static void main(String[] args) {
-        new ClinicManager().run();
+    private static final int BUFFER_SIZE = 1 << 16; // 64 KB for batch input and output
+    private static final int DEFAULT_SNAPSHOT_INTERVAL = 10000;
+
+    public static void main(String[] args) throws IOException {
+        String snapshot = null;
+        String journal = null;
+        boolean keepCalendar = false;
+        int snapshotInterval = DEFAULT_SNAPSHOT_INTERVAL;
+        int first = 0; // First file argument
+        while (first < args.length && args[first].startsWith("--")) {
+            String option = args[first++];
+            if (option.startsWith("--snapshot=")) {
+                snapshot = option.substring("--snapshot=".length());
+            } else if (option.startsWith("--snapshot-interval=")) {
+                snapshotInterval = Integer.parseInt(option.substring("--snapshot-interval=".length()));
+            } else if (option.startsWith("--journal=")) {
+                journal = option.substring("--journal=".length());
+            } else if (option.equals("--keep-calendar")) {
+                keepCalendar = true;
+            } else {
+                System.err.println("Unknown option: " + option);
+                return;
+            }
+        }
+
+        if (first == args.length) {
+            ClinicManager clinic = new ClinicManager();
+            clinic.setKeepCalendarOnBilling(keepCalendar);
+            enableSnapshots(clinic, snapshot, snapshotInterval);
+            enableJournal(clinic, journal);
+            clinic.run();
+            return;
+        }
+
+        InputStream input = args[first].equals("-") ? System.in : new FileInputStream(args[first]);
+        OutputStream output = args.length > first + 1 ? new FileOutputStream(args[first + 1]) : System.out;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8),
+                BUFFER_SIZE);
+                PrintWriter out = new PrintWriter(new BufferedWriter(
+                        new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE))) {
+            ClinicManager clinic = new ClinicManager("providers.txt", out);
+            clinic.setKeepCalendarOnBilling(keepCalendar);
+            enableSnapshots(clinic, snapshot, snapshotInterval);
+            enableJournal(clinic, journal);
+            clinic.runBatch(in);
+        }
+    }
+
+    // A snapshot that cannot be read is reported, and the calendar starts empty
+    // and is not saved, so the file is kept for inspection
+    private static void enableSnapshots(ClinicManager clinic, String snapshot, int interval) {
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            clinic.enableSnapshots(Paths.get(snapshot), interval);
+            System.err.printf("Snapshot %s loaded in %.1f ms.%n", snapshot, (System.nanoTime() - start) / 1e6);
+        } catch (IOException e) {
+            System.err.println("Error loading the snapshot: " + e.getMessage());
+        }
+    }
+
+    // The journal is replayed after the snapshot. A journal that cannot be
+    // replayed is reported and left untouched, and later changes are not
+    // journaled
+    private static void enableJournal(ClinicManager clinic, String journal) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            int replayed = clinic.enableJournal(Paths.get(journal));
+            System.err.printf("Journal %s replayed %d changes in %.1f ms.%n", journal, replayed,
+                    (System.nanoTime() - start) / 1e6);
+        } catch (IOException e) {
+            System.err.println("Error loading the journal: " + e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
@@ -2,8 +2,8 @@ package ruclinic;
 
 /**
  * Class representing a visit to the clinic.
- * Each visit is associated with an appointment and can link to the next visit,
- * forming a linked list of visits for the patient.
+ * Each visit is associated with an appointment and links to the visits before
+ * and after it, forming the chain of visits kept by the patient's visit store.
  * 
  * @author Paldeep Sekhon
  * @author Aditya Ponni
@@ -11,16 +11,18 @@ package ruclinic;
 public class Visit {
     private Appointment appointment; // A reference to the associated appointment
     private Visit next; // A reference to the next visit in the list
+    private Visit previous; // A reference to the previous visit in the list
 
     /**
      * Constructor for the Visit class.
-     * Initializes the visit with an appointment and sets the next visit to null.
+     * Initializes the visit with an appointment and no linked visits.
      * 
      * @param appointment The appointment associated with the visit.
      */
     public Visit(Appointment appointment) {
         this.appointment = appointment;
         this.next = null;
+        this.previous = null;
     }
 
     /**
@@ -50,6 +52,25 @@ public class Visit {
         this.next = next;
     }
 
+    /**
+     * Gets the previous visit in the linked list of visits.
+     * 
+     * @return The previous visit in the list, or null if there is no previous
+     *         visit.
+     */
+    public Visit getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Sets the previous visit in the linked list of visits.
+     * 
+     * @param previous The previous visit to link to this one.
+     */
+    public void setPrevious(Visit previous) {
+        this.previous = previous;
+    }
+
     /**
      * Gets the specialty of the provider associated with this visit's appointment.
      * 
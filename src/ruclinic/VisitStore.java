@@ -0,0 +1,177 @@
+package ruclinic;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The visits of one patient, kept in the order they were added and indexed by
+ * appointment.
+ *
+ * The visits stay linked in a chain so they can be walked from the first one,
+ * and every visit is also indexed by its appointment, so adding a visit,
+ * finding a duplicate and removing the visit of an appointment take O(1)
+ * instead of a walk over the chain. The total charge of the visits is kept up
+ * to date as visits are added and removed.
+ *
+ * Appointments are matched with equals(), so the visit of an appointment must
+ * be removed before the appointment is moved to another timeslot or provider,
+ * and added again after.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+public class VisitStore implements Iterable<Visit> {
+    private HashMap<Appointment, Visit> index; // The visit of each appointment
+    private Visit first; // First visit added
+    private Visit last; // Last visit added
+    private int totalCharge; // Sum of the provider rates over the visits
+
+    /**
+     * Constructs an empty store.
+     */
+    public VisitStore() {
+        this.index = new HashMap<>();
+    }
+
+    /**
+     * Adds a visit after the last one. If a visit for the same appointment is
+     * already in the store, the visit is not added.
+     *
+     * @param visit the visit to be added.
+     * @return true if the visit was added, false if it is a duplicate.
+     */
+    public boolean add(Visit visit) {
+        if (index.putIfAbsent(visit.getAppointment(), visit) != null) {
+            return false; // Duplicate visit, do not add
+        }
+        visit.setPrevious(last);
+        visit.setNext(null);
+        if (last == null) {
+            first = visit;
+        } else {
+            last.setNext(visit);
+        }
+        last = visit;
+        totalCharge += chargeOf(visit);
+        return true;
+    }
+
+    /**
+     * Removes the visit of an appointment.
+     *
+     * @param appointment the appointment whose visit is removed.
+     * @return the removed visit, or null if the appointment has no visit.
+     */
+    public Visit remove(Appointment appointment) {
+        Visit visit = index.remove(appointment);
+        if (visit == null) {
+            return null;
+        }
+        Visit previous = visit.getPrevious();
+        Visit next = visit.getNext();
+        if (previous == null) {
+            first = next;
+        } else {
+            previous.setNext(next);
+        }
+        if (next == null) {
+            last = previous;
+        } else {
+            next.setPrevious(previous);
+        }
+        visit.setPrevious(null);
+        visit.setNext(null);
+        totalCharge -= chargeOf(visit);
+        return visit;
+    }
+
+    /**
+     * Checks if an appointment has a visit in the store.
+     *
+     * @param appointment the appointment.
+     * @return true if the appointment has a visit, false otherwise.
+     */
+    public boolean contains(Appointment appointment) {
+        return index.containsKey(appointment);
+    }
+
+    /**
+     * Removes every visit.
+     */
+    public void clear() {
+        index.clear();
+        first = null;
+        last = null;
+        totalCharge = 0;
+    }
+
+    /**
+     * Gets the first visit, from which the others are linked.
+     *
+     * @return The first visit, or null if the store is empty.
+     */
+    public Visit getFirst() {
+        return first;
+    }
+
+    /**
+     * Gets the total charge of the visits.
+     *
+     * @return The sum of the provider rates over the visits.
+     */
+    public int getTotalCharge() {
+        return totalCharge;
+    }
+
+    /**
+     * Gets the number of visits.
+     *
+     * @return The number of visits.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Checks if the store has no visits.
+     *
+     * @return true if the store is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    /**
+     * Returns the visits in the order they were added.
+     *
+     * @return An iterator over the visits.
+     */
+    @Override
+    public Iterator<Visit> iterator() {
+        return new Iterator<Visit>() {
+            private Visit current = first;
+
+            @Override
+            public boolean hasNext() {
+                return current != null;
+            }
+
+            @Override
+            public Visit next() {
+                if (current == null) {
+                    throw new NoSuchElementException();
+                }
+                Visit visit = current;
+                current = current.getNext();
+                return visit;
+            }
+        };
+    }
+
+    // Doctors charge by specialty and technicians by visit, both through rate()
+    private static int chargeOf(Visit visit) {
+        Provider provider = visit.getAppointment().getProvider();
+        return provider == null ? 0 : provider.rate();
+    }
+}
@@ -0,0 +1,224 @@
+package util;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Calendar computations for the booking rules, done with integer arithmetic
+ * on epoch days instead of java.util.Calendar.
+ *
+ * Today and the six month horizon are read from a clock and cached until the
+ * next midnight. For the booking window, the days from today to the horizon,
+ * the service memoizes one Date per day, so dates inside the window are
+ * shared instead of created per command.
+ *
+ * The clock can be replaced, for example with Clock.fixed in tests, through
+ * the constructor or setDefault.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+public class CalendarService {
+    public static final int MONTHS_AHEAD = 6; // Length of the booking window
+
+    private static final int[] DAYS_IN_MONTH = { 0, 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
+    private static volatile CalendarService defaultService = new CalendarService(Clock.systemDefaultZone());
+
+    private final Clock clock;
+    private volatile Window window; // Cached today, horizon and window dates
+
+    /**
+     * Constructs a calendar service that reads today from the given clock.
+     *
+     * @param clock the clock giving the current instant and time zone.
+     */
+    public CalendarService(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the shared calendar service used by Date.
+     *
+     * @return the default service, on the system clock unless replaced.
+     */
+    public static CalendarService getDefault() {
+        return defaultService;
+    }
+
+    /**
+     * Replaces the shared calendar service, for example to fix today in tests.
+     *
+     * @param service the new default service.
+     */
+    public static void setDefault(CalendarService service) {
+        defaultService = service;
+    }
+
+    /**
+     * Gets today's date.
+     *
+     * @return today.
+     */
+    public Date today() {
+        return current().today;
+    }
+
+    /**
+     * Gets the end of the booking window, six months from today. Days before
+     * the horizon are within six months.
+     *
+     * @return the horizon date.
+     */
+    public Date horizon() {
+        return current().horizon;
+    }
+
+    /**
+     * Checks if a date is before the six month horizon.
+     *
+     * @param date the date to check.
+     * @return true if the date is before the horizon, false otherwise.
+     */
+    public boolean isWithinSixMonths(Date date) {
+        return date.toEpochDay() < current().horizon.toEpochDay();
+    }
+
+    /**
+     * Gets the date with the given fields. Valid dates from today to the
+     * horizon come from the memoized window table; other dates are created.
+     *
+     * @param year  the year.
+     * @param month the month, 1 to 12.
+     * @param day   the day of the month.
+     * @return the date.
+     */
+    public Date date(int year, int month, int day) {
+        if (!isValid(year, month, day)) {
+            return new Date(year, month, day);
+        }
+        return current().lookup(year, month, day);
+    }
+
+    /**
+     * Gets the date of an epoch day, from the memoized window table when the
+     * day is from today to the horizon.
+     *
+     * @param epochDay the days since 1/1/1970.
+     * @return the date.
+     */
+    public Date date(int epochDay) {
+        return current().lookup(epochDay);
+    }
+
+    /**
+     * Checks if the fields form a date of the Gregorian calendar.
+     *
+     * @param year  the year, 1 or later.
+     * @param month the month, 1 to 12.
+     * @param day   the day of the month.
+     * @return true if the date exists, false otherwise.
+     */
+    public static boolean isValid(int year, int month, int day) {
+        if (year < 1 || month < 1 || month > 12 || day < 1) {
+            return false;
+        }
+        return day <= daysInMonth(year, month);
+    }
+
+    /**
+     * Gets the number of days in a month.
+     *
+     * @param year  the year.
+     * @param month the month, 1 to 12.
+     * @return the number of days.
+     */
+    public static int daysInMonth(int year, int month) {
+        if (month == 2 && isLeapYear(year)) {
+            return 29;
+        }
+        return DAYS_IN_MONTH[month];
+    }
+
+    public static boolean isLeapYear(int year) {
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+    }
+
+    /**
+     * Gets the day of the week of an epoch day.
+     *
+     * @param epochDay the days since 1/1/1970.
+     * @return 0 for Monday to 6 for Sunday.
+     */
+    public static int dayOfWeek(int epochDay) {
+        return Math.floorMod(epochDay + 3, 7); // 1/1/1970 was a Thursday
+    }
+
+    /**
+     * Checks if an epoch day is a Saturday or Sunday.
+     *
+     * @param epochDay the days since 1/1/1970.
+     * @return true if the day is on a weekend, false otherwise.
+     */
+    public static boolean isWeekend(int epochDay) {
+        return dayOfWeek(epochDay) >= 5;
+    }
+
+    // Rebuilds the window once the cached day has passed
+    private Window current() {
+        Window w = window;
+        if (w == null || clock.millis() >= w.expires) {
+            w = new Window(LocalDate.now(clock), clock.getZone());
+            window = w;
+        }
+        return w;
+    }
+
+    /**
+     * Today, the horizon and the memoized dates in between, valid until the
+     * next midnight.
+     */
+    private static final class Window {
+        private final Date today;
+        private final Date horizon;
+        private final long expires; // Millis of the next midnight
+        private final Date[] dates; // Date of each day from today, created on first use
+
+        Window(LocalDate now, ZoneId zone) {
+            LocalDate end = now.plusMonths(MONTHS_AHEAD); // Clamps the day like Calendar.add
+            this.today = new Date(now.getYear(), now.getMonthValue(), now.getDayOfMonth());
+            this.horizon = new Date(end.getYear(), end.getMonthValue(), end.getDayOfMonth());
+            this.expires = now.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            this.dates = new Date[horizon.toEpochDay() - today.toEpochDay() + 1];
+            dates[0] = today;
+            dates[dates.length - 1] = horizon;
+        }
+
+        Date lookup(int year, int month, int day) {
+            int offset = Date.toEpochDay(year, month, day) - today.toEpochDay();
+            if (offset < 0 || offset >= dates.length) {
+                return new Date(year, month, day);
+            }
+            Date shared = dates[offset];
+            if (shared == null) {
+                shared = new Date(year, month, day);
+                dates[offset] = shared; // Final fields make a racing store safe to read
+            }
+            return shared;
+        }
+
+        Date lookup(int epochDay) {
+            int offset = epochDay - today.toEpochDay();
+            if (offset < 0 || offset >= dates.length) {
+                return Date.ofEpochDay(epochDay);
+            }
+            Date shared = dates[offset];
+            if (shared == null) {
+                shared = Date.ofEpochDay(epochDay);
+                dates[offset] = shared;
+            }
+            return shared;
+        }
+    }
+}
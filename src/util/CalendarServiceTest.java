@@ -0,0 +1,46 @@
+package util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+class CalendarServiceTest {
+    // Thursday 8/31/2023 at noon UTC
+    private final CalendarService calendar = new CalendarService(
+            Clock.fixed(Instant.parse("2023-08-31T12:00:00Z"), ZoneOffset.UTC));
+
+    @Test
+    public void testTodayAndHorizon() {
+        assertEquals(new Date(2023, 8, 31), calendar.today(), "Today comes from the clock.");
+        // 2024 is a leap year, so six months from 8/31 is clamped to 2/29
+        assertEquals(new Date(2024, 2, 29), calendar.horizon(), "The horizon is clamped to the end of the month.");
+
+        assertTrue(calendar.isWithinSixMonths(new Date(2024, 2, 28)), "The day before the horizon is within.");
+        assertFalse(calendar.isWithinSixMonths(new Date(2024, 2, 29)), "The horizon is not within.");
+    }
+
+    @Test
+    public void testArithmetic() {
+        assertTrue(CalendarService.isValid(2024, 2, 29), "2/29/2024 is a leap day.");
+        assertFalse(CalendarService.isValid(2100, 2, 29), "2100 is not a leap year.");
+        assertTrue(CalendarService.isValid(2000, 2, 29), "2000 is a leap year.");
+        assertFalse(CalendarService.isValid(2023, 4, 31), "April has 30 days.");
+
+        assertEquals(3, CalendarService.dayOfWeek(new Date(2023, 8, 31).toEpochDay()), "8/31/2023 is a Thursday.");
+        assertTrue(new Date(2023, 9, 2).isWeekend(), "9/2/2023 is a Saturday.");
+        assertFalse(new Date(2023, 9, 4).isWeekend(), "9/4/2023 is a Monday.");
+    }
+
+    @Test
+    public void testWindowDatesAreShared() {
+        assertSame(calendar.date(2023, 10, 2), calendar.date(2023, 10, 2), "Window dates are memoized.");
+        assertEquals(new Date(2030, 1, 1), calendar.date(2030, 1, 1), "Dates past the window are created.");
+    }
+}
@@ -0,0 +1,132 @@
+package util;
+
+/**
+ * Splits comma separated command lines into tokens without regular
+ * expressions. Only the bounds of each token are recorded, and the bound
+ * arrays are reused from line to line, so splitting a line allocates nothing.
+ * A token is copied into a String only when token(i) is called.
+ *
+ * Tokens follow String.split(","): empty tokens in the middle of a line are
+ * kept and empty tokens at the end of a line are dropped.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+public class CsvTokenizer {
+    private static final char SEPARATOR = ',';
+    private static final int INITIAL_CAPACITY = 8;
+
+    private CharSequence line; // The current line
+    private int[] starts; // Start index of each token, inclusive
+    private int[] ends; // End index of each token, exclusive
+    private int count; // Number of tokens in the current line
+
+    /**
+     * Constructs a tokenizer with room for eight tokens.
+     */
+    public CsvTokenizer() {
+        starts = new int[INITIAL_CAPACITY];
+        ends = new int[INITIAL_CAPACITY];
+        count = 0;
+    }
+
+    /**
+     * Splits a new line into tokens, replacing the tokens of the previous line.
+     *
+     * @param line the line to split.
+     * @return this tokenizer.
+     */
+    public CsvTokenizer reset(CharSequence line) {
+        this.line = line;
+        count = 0;
+        int start = 0;
+        int length = line.length();
+        for (int i = 0; i < length; i++) {
+            if (line.charAt(i) == SEPARATOR) {
+                append(start, i);
+                start = i + 1;
+            }
+        }
+        append(start, length);
+
+        // Drop trailing empty tokens like String.split, but keep a lone empty line
+        while (count > 1 && starts[count - 1] == ends[count - 1]) {
+            count--;
+        }
+        return this;
+    }
+
+    /**
+     * Gets the number of tokens in the current line.
+     *
+     * @return the number of tokens.
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Gets a token of the current line as a String.
+     *
+     * @param index the token index.
+     * @return the token.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public String token(int index) {
+        checkIndex(index);
+        return line.subSequence(starts[index], ends[index]).toString();
+    }
+
+    /**
+     * Gets the index in the line where a token starts.
+     *
+     * @param index the token index.
+     * @return the start of the token, inclusive.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public int start(int index) {
+        checkIndex(index);
+        return starts[index];
+    }
+
+    /**
+     * Gets the index in the line where a token ends.
+     *
+     * @param index the token index.
+     * @return the end of the token, exclusive.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public int end(int index) {
+        checkIndex(index);
+        return ends[index];
+    }
+
+    /**
+     * Gets the current line.
+     *
+     * @return the line passed to the last reset.
+     */
+    public CharSequence line() {
+        return line;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+        }
+    }
+
+    private void append(int start, int end) {
+        if (count == starts.length) {
+            int[] grownStarts = new int[starts.length * 2];
+            int[] grownEnds = new int[ends.length * 2];
+            System.arraycopy(starts, 0, grownStarts, 0, count);
+            System.arraycopy(ends, 0, grownEnds, 0, count);
+            starts = grownStarts;
+            ends = grownEnds;
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+}
@@ -1,23 +1,26 @@
 package util;
 
-import java.util.Calendar;
-
 /**
  * Represents a date with year, month, and day fields.
- * 
+ *
+ * The date is also kept as the number of days since 1/1/1970 (the epoch day),
+ * so comparing and hashing dates take a single int operation.
+ *
  * @author Paldeep Sekhon
  * @author Aditya Ponni
  */
 public class Date implements Comparable<Date> {
-    private int year;
-    private int month;
-    private int day;
+    private final int year;
+    private final int month;
+    private final int day;
+    private final int epochDay; // Days since 1/1/1970
 
     // Constructor
     public Date(int year, int month, int day) {
         this.year = year;
         this.month = month;
         this.day = day;
+        this.epochDay = toEpochDay(year, month, day);
     }
 
     @Override
@@ -32,11 +35,20 @@ public class Date implements Comparable<Date> {
         if (obj == null || getClass() != obj.getClass())
             return false;
         Date date = (Date) obj;
-        return year == date.year && month == date.month && day == date.day;
+        // An invalid date like 2/30 can share its epoch day with a valid one
+        return epochDay == date.epochDay && month == date.month && day == date.day && year == date.year;
+    }
+
+    @Override
+    public int hashCode() {
+        return epochDay;
     }
 
     @Override
     public int compareTo(Date other) {
+        if (this.epochDay != other.epochDay)
+            return Integer.compare(this.epochDay, other.epochDay);
+        // Same epoch day, only differs if one of the dates is invalid
         if (this.year != other.year)
             return this.year - other.year;
         if (this.month != other.month)
@@ -44,37 +56,62 @@ public class Date implements Comparable<Date> {
         return this.day - other.day;
     }
 
-    public boolean isValid() {
-        if (year < 1 || month < 1 || month > 12 || day < 1) {
-            return false;
-        }
+    /**
+     * Gets the number of days from 1/1/1970 to this date, negative before it.
+     * Invalid dates roll over, so 2/30 has the epoch day of the first days of
+     * March.
+     *
+     * @return the epoch day.
+     */
+    public int toEpochDay() {
+        return epochDay;
+    }
 
-        Calendar calendar = Calendar.getInstance();
-        calendar.setLenient(false);
-        calendar.set(year, month - 1, day); // Adjust for 0-based months
+    /**
+     * Gets the date of an epoch day.
+     *
+     * @param epochDay the days since 1/1/1970.
+     * @return the date.
+     */
+    public static Date ofEpochDay(int epochDay) {
+        // Civil date from days, the inverse of toEpochDay
+        long days = (long) epochDay + 719468;
+        long era = Math.floorDiv(days, 146097);
+        long dayOfEra = days - era * 146097; // 0 to 146096
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153; // 0 is March
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        return new Date(year, month, day);
+    }
 
-        try {
-            calendar.getTime(); // Will throw an exception if invalid
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+    // Days from civil date, counted in years starting on March 1 so the leap
+    // day is the last day of the year
+    static int toEpochDay(int year, int month, int day) {
+        long y = month <= 2 ? (long) year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400; // 0 to 399
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        long days = era * 146097 + dayOfEra - 719468;
+        // Years far outside the calendar saturate, equals and compareTo fall back
+        // on the fields
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, days));
+    }
+
+    public boolean isValid() {
+        return CalendarService.isValid(year, month, day);
     }
 
     public boolean isWeekend() {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(year, month - 1, day); // Adjust for 0-based months
-        int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
-        return (dayOfWeek == Calendar.SATURDAY || dayOfWeek == Calendar.SUNDAY);
+        return CalendarService.isWeekend(epochDay);
     }
 
+    // Six months from today on the default calendar service
     public boolean isWithinSixMonths() {
-        Calendar sixMonthsFromNow = Calendar.getInstance();
-        sixMonthsFromNow.add(Calendar.MONTH, 6);
-        Calendar appointmentDate = Calendar.getInstance();
-        appointmentDate.set(year, month - 1, day); // Adjust for 0-based months
-
-        return appointmentDate.before(sixMonthsFromNow);
+        return CalendarService.getDefault().isWithinSixMonths(this);
     }
 
     // Additional getter methods
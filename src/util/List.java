@@ -1,11 +1,34 @@
 package util;
 
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+/**
+ * A growable array list.
+ *
+ * The backing array grows by half its capacity with one array copy, and can be
+ * sized ahead with ensureCapacity() or trimmed with trimToSize(). A removal
+ * shifts the tail with one array copy, and removeIf() compacts the list in a
+ * single pass, so removing many elements costs O(n) in total. Iterators are
+ * fail-fast and can remove the element they returned.
+ *
+ * The list can be streamed. Its spliterator knows its exact size and splits
+ * its index range in halves, so parallel streams divide the work evenly.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
 public class List<E> implements Iterable<E> {
     private E[] elements; // Generic array to hold elements
     private int size; // Number of elements in the array
+    private int modCount; // Changes to the size, checked by the iterators
     private static final int NOT_FOUND = -1;
     private static final int INITIAL_CAPACITY = 4;
 
@@ -13,19 +36,33 @@ public class List<E> implements Iterable<E> {
      * Constructs an empty list with an initial capacity of 4.
      */
     public List() {
-        elements = (E[]) new Object[INITIAL_CAPACITY];
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty list that holds the given number of elements before
+     * it grows.
+     *
+     * @param capacity The initial capacity.
+     * @throws IllegalArgumentException if the capacity is negative.
+     */
+    public List(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Negative capacity: " + capacity);
+        }
+        elements = (E[]) new Object[capacity];
         size = 0;
     }
 
     /**
      * Finds the index of the specified element in the array.
-     * 
+     *
      * @param element The element to search for.
      * @return The index of the element if found, -1 otherwise.
      */
     private int find(E element) {
         for (int i = 0; i < size; i++) {
-            if (elements[i].equals(element)) {
+            if (elements[i] == element || elements[i].equals(element)) {
                 return i;
             }
         }
@@ -33,20 +70,42 @@ public class List<E> implements Iterable<E> {
     }
 
     /**
-     * Increases the size of the elements array by doubling its capacity.
+     * Increases the capacity of the elements array by half, or more if needed.
+     *
+     * @param minCapacity The capacity needed.
+     */
+    private void grow(int minCapacity) {
+        int capacity = elements.length + (elements.length >> 1) + 1;
+        if (capacity < minCapacity || capacity < 0) { // Overflow past the largest int
+            capacity = minCapacity;
+        }
+        elements = Arrays.copyOf(elements, capacity);
+    }
+
+    /**
+     * Makes sure the list holds the given number of elements before it grows
+     * again.
+     *
+     * @param minCapacity The capacity needed.
      */
-    private void grow() {
-        // Manually create a new array with double the capacity and copy elements over
-        E[] newElements = (E[]) new Object[elements.length * 2];
-        for (int i = 0; i < elements.length; i++) {
-            newElements[i] = elements[i]; // Copy each element manually
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elements.length) {
+            grow(minCapacity);
+        }
+    }
+
+    /**
+     * Shrinks the capacity of the list to its size.
+     */
+    public void trimToSize() {
+        if (size < elements.length) {
+            elements = Arrays.copyOf(elements, size);
         }
-        elements = newElements; // Assign the new array to the elements field
     }
 
     /**
      * Checks if the list contains a specific element.
-     * 
+     *
      * @param element The element to check for.
      * @return true if the list contains the element, false otherwise.
      */
@@ -57,38 +116,154 @@ public class List<E> implements Iterable<E> {
     /**
      * Adds a new element to the list. If the array is full, its capacity is
      * increased.
-     * 
+     *
      * @param element The element to add to the list.
      */
     public void add(E element) {
         if (size == elements.length) {
-            grow(); // Resize the array if needed
+            grow(size + 1); // Resize the array if needed
         }
         elements[size++] = element;
+        modCount++;
     }
 
     /**
-     * Removes an element from the list. The array elements are shifted to fill the
-     * gap.
-     * 
+     * Inserts an element at a given index. The elements from that index on are
+     * shifted up with one array copy.
+     *
+     * @param index   The index to insert at, 0 to size().
+     * @param element The element to insert.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public void add(int index, E element) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index out of bounds.");
+        }
+        if (size == elements.length) {
+            grow(size + 1);
+        }
+        System.arraycopy(elements, index, elements, index + 1, size - index); // Shift right
+        elements[index] = element;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Adds every element of another list, in order, growing the array at most
+     * once.
+     *
+     * @param other The list whose elements are added.
+     */
+    public void addAll(List<? extends E> other) {
+        int count = other.size; // Read once, the other list may be this one
+        ensureCapacity(size + count);
+        System.arraycopy(other.elements, 0, elements, size, count);
+        size += count;
+        modCount++;
+    }
+
+    /**
+     * Adds every element returned by an iterable, in order.
+     *
+     * @param other The elements to add.
+     */
+    public void addAll(Iterable<? extends E> other) {
+        for (E element : other) {
+            add(element);
+        }
+    }
+
+    /**
+     * Removes an element from the list. The elements after it are shifted to
+     * fill the gap.
+     *
      * @param element The element to remove from the list.
+     * @throws NoSuchElementException if the element is not in the list.
      */
     public void remove(E element) {
         int index = find(element); // Find the index of the element
         if (index != NOT_FOUND) {
-            // Shift elements to the left to fill the gap
-            for (int i = index; i < size - 1; i++) {
-                elements[i] = elements[i + 1]; // Shift left
-            }
-            elements[--size] = null; // Clear the last element
+            removeAt(index);
         } else {
             throw new NoSuchElementException("Element not found: " + element);
         }
     }
 
+    /**
+     * Removes the element at a given index. The elements after it are shifted
+     * to fill the gap.
+     *
+     * @param index The index of the element to remove.
+     * @return The removed element.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public E removeAt(int index) {
+        E element = get(index);
+        int moved = size - index - 1;
+        if (moved > 0) {
+            System.arraycopy(elements, index + 1, elements, index, moved); // Shift left
+        }
+        elements[--size] = null; // Clear the last element
+        modCount++;
+        return element;
+    }
+
+    /**
+     * Removes every element that matches a filter. The kept elements are moved
+     * down in a single pass.
+     *
+     * @param filter The filter that selects the elements to remove.
+     * @return true if any element was removed, false otherwise.
+     * @throws ConcurrentModificationException if the filter changes the list.
+     */
+    public boolean removeIf(Predicate<? super E> filter) {
+        int expectedModCount = modCount;
+        int kept = 0;
+        int tested = 0;
+        try {
+            for (; tested < size; tested++) {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                E element = elements[tested];
+                if (!filter.test(element)) {
+                    elements[kept++] = element;
+                }
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        } finally {
+            compact(kept, tested); // If the filter throws, the untested elements are kept
+        }
+        return kept < tested;
+    }
+
+    // Moves the untested elements down after the kept ones and clears the rest
+    private void compact(int kept, int tested) {
+        if (kept == tested) {
+            return; // Nothing was removed
+        }
+        int untested = size - tested;
+        System.arraycopy(elements, tested, elements, kept, untested);
+        int newSize = kept + untested;
+        Arrays.fill(elements, newSize, size, null);
+        size = newSize;
+        modCount++;
+    }
+
+    /**
+     * Removes every element.
+     */
+    public void clear() {
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
     /**
      * Gets the number of elements in the list.
-     * 
+     *
      * @return The number of elements in the list.
      */
     public int size() {
@@ -97,7 +272,7 @@ public class List<E> implements Iterable<E> {
 
     /**
      * Checks if the list is empty.
-     * 
+     *
      * @return true if the list is empty, false otherwise.
      */
     public boolean isEmpty() {
@@ -106,7 +281,7 @@ public class List<E> implements Iterable<E> {
 
     /**
      * Retrieves an element at a given index.
-     * 
+     *
      * @param index The index of the element to retrieve.
      * @return The element at the specified index.
      * @throws IndexOutOfBoundsException if the index is out of range.
@@ -121,7 +296,7 @@ public class List<E> implements Iterable<E> {
 
     /**
      * Replaces the element at the specified index with the provided element.
-     * 
+     *
      * @param index   The index to replace.
      * @param element The new element.
      * @throws IndexOutOfBoundsException if the index is out of range.
@@ -136,7 +311,7 @@ public class List<E> implements Iterable<E> {
 
     /**
      * Returns the index of the given element, or -1 if not found.
-     * 
+     *
      * @param element The element to find.
      * @return The index of the element, or -1 if not found.
      */
@@ -145,8 +320,10 @@ public class List<E> implements Iterable<E> {
     }
 
     /**
-     * Returns an iterator for the list.
-     * 
+     * Returns a fail-fast iterator for the list. Elements can be removed
+     * through the iterator; changing the list in any other way during the
+     * iteration makes the iterator throw ConcurrentModificationException.
+     *
      * @return An iterator for the list.
      */
     @Override
@@ -154,11 +331,122 @@ public class List<E> implements Iterable<E> {
         return new ListIterator();
     }
 
+    /**
+     * Returns a fail-fast spliterator over the elements in order. It binds to
+     * the list on first use and splits its index range in halves; every part
+     * knows its exact size.
+     *
+     * @return A spliterator for the list.
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new ListSpliterator(0, NOT_FOUND, 0);
+    }
+
+    /**
+     * Returns a sequential stream of the elements in order.
+     *
+     * @return A stream over the list.
+     */
+    public Stream<E> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Returns a parallel stream of the elements. The list must not be changed
+     * while the stream runs.
+     *
+     * @return A parallel stream over the list.
+     */
+    public Stream<E> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Private class implementing the spliterator for the List.
+     */
+    private class ListSpliterator implements Spliterator<E> {
+        private int index; // Next element to return
+        private int fence; // One past the last element, -1 until first use
+        private int expectedModCount; // Set with the fence
+
+        ListSpliterator(int origin, int fence, int expectedModCount) {
+            this.index = origin;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        // Binds to the list size the first time it is needed
+        private int getFence() {
+            if (fence < 0) {
+                expectedModCount = modCount;
+                fence = size;
+            }
+            return fence;
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            int hi = getFence();
+            int lo = index;
+            int mid = (lo + hi) >>> 1;
+            if (lo >= mid) {
+                return null; // Too small to split
+            }
+            index = mid;
+            return new ListSpliterator(lo, mid, expectedModCount);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            int hi = getFence();
+            if (index >= hi) {
+                return false;
+            }
+            action.accept(elements[index++]);
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            int hi = getFence();
+            E[] array = elements;
+            for (int i = index; i < hi; i++) {
+                action.accept(array[i]);
+            }
+            index = hi;
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return getFence() - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+
     /**
      * Private class implementing the iterator for the List.
      */
     private class ListIterator implements Iterator<E> {
         private int currentIndex = 0;
+        private int lastReturned = NOT_FOUND; // Index of the element next() returned, -1 once removed
+        private int expectedModCount = modCount;
 
         @Override
         public boolean hasNext() {
@@ -167,10 +455,28 @@ public class List<E> implements Iterable<E> {
 
         @Override
         public E next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
             if (!hasNext()) {
                 throw new NoSuchElementException("No more elements");
             }
+            lastReturned = currentIndex;
             return elements[currentIndex++];
         }
+
+        @Override
+        public void remove() {
+            if (lastReturned == NOT_FOUND) {
+                throw new IllegalStateException("next() was not called since the last removal.");
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(lastReturned);
+            currentIndex = lastReturned;
+            lastReturned = NOT_FOUND;
+            expectedModCount = modCount;
+        }
     }
 }
@@ -9,6 +9,10 @@ import ruclinic.Location;
 import ruclinic.Specialty;
 import ruclinic.Technician;
 
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Spliterator;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ListTest {
@@ -54,4 +58,73 @@ class ListTest {
         providerList.remove(technician);
         assertFalse(providerList.contains(technician), "Technician should be removed from the list.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void removeIfKeepsOrder() {
+        List<Integer> numbers = new List<>();
+        for (int i = 0; i < 10; i++) {
+            numbers.add(i);
+        }
+        assertTrue(numbers.removeIf(n -> n % 3 == 0));
+        assertEquals(6, numbers.size());
+        assertEquals(1, numbers.get(0).intValue());
+        assertEquals(8, numbers.get(5).intValue());
+        assertFalse(numbers.removeIf(n -> n > 100), "Nothing should be removed.");
+    }
+
+    @Test
+    void addAtIndexShiftsUp() {
+        List<Integer> numbers = new List<>(1);
+        numbers.add(0, 2);
+        numbers.add(0, 0);
+        numbers.add(1, 1);
+        numbers.add(3, 3);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, numbers.get(i).intValue());
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> numbers.add(5, 5));
+    }
+
+    @Test
+    void iteratorRemovesAndFailsFast() {
+        List<Integer> numbers = new List<>(2);
+        List<Integer> more = new List<>();
+        more.add(1);
+        more.add(2);
+        more.add(3);
+        numbers.addAll(more);
+        numbers.addAll(more);
+
+        Iterator<Integer> iterator = numbers.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() == 2) {
+                iterator.remove();
+            }
+        }
+        assertEquals(4, numbers.size());
+        assertEquals(3, numbers.get(1).intValue());
+
+        Iterator<Integer> stale = numbers.iterator();
+        stale.next();
+        numbers.add(4);
+        assertThrows(ConcurrentModificationException.class, stale::next);
+    }
+
+    @Test
+    void spliteratorSplitsAndStreams() {
+        List<Integer> numbers = new List<>();
+        for (int i = 1; i <= 1000; i++) {
+            numbers.add(i);
+        }
+        Spliterator<Integer> second = numbers.spliterator();
+        Spliterator<Integer> first = second.trySplit();
+        assertEquals(500, first.estimateSize());
+        assertEquals(500, second.estimateSize());
+        assertTrue(second.hasCharacteristics(Spliterator.SUBSIZED));
+
+        assertEquals(500500, numbers.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(500500, numbers.parallelStream().mapToInt(Integer::intValue).sum());
+        assertEquals(1, numbers.parallelStream().filter(n -> n % 2 == 1).findFirst().get().intValue(),
+                "A parallel stream should keep the list order.");
+    }
+}
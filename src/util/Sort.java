@@ -1,182 +1,205 @@
 package util;
 
 /**
- * Used to sort the appointments list 
- * 
+ * Used to sort the appointments list
+ *
+ * The sorts are stable merge sorts driven by comparator chains, so ties keep
+ * the order the list already had.
+ *
  * @author Paldeep Sekhon
  * @author Aditya Ponni
  */
 
+import java.util.Comparator;
+import java.util.function.Function;
+
 import ruclinic.Appointment;
 import ruclinic.Provider;
-import ruclinic.Doctor;
 
 public class Sort {
+    private static final int INSERTION_SORT_THRESHOLD = 16; // Runs this short are insertion sorted
+
+    /**
+     * Orders appointments by date, then timeslot.
+     */
+    public static final Comparator<Appointment> BY_DATE_TIME = Comparator
+            .comparingInt((Appointment a) -> a.getDate().toEpochDay())
+            .thenComparingInt(a -> a.getTimeslot().getIndex());
+
+    /**
+     * Orders appointments by county of the provider's location, then date,
+     * timeslot and provider first name.
+     */
+    public static final Comparator<Appointment> BY_COUNTY_DATE_TIME = Comparator
+            .comparing((Appointment a) -> a.getProvider().getLocation().getCounty())
+            .thenComparing(BY_DATE_TIME)
+            .thenComparing(a -> a.getProvider().getProfile().getFirstName());
+
+    /**
+     * Orders appointments by date, timeslot, then provider last and first name.
+     */
+    public static final Comparator<Appointment> BY_DATE_TIME_PROVIDER = BY_DATE_TIME
+            .thenComparing(a -> a.getProvider().getProfile().getLastName())
+            .thenComparing(a -> a.getProvider().getProfile().getFirstName());
+
+    /**
+     * Orders appointments by patient profile, then date and timeslot.
+     */
+    public static final Comparator<Appointment> BY_PATIENT_DATE_TIME = Comparator
+            .comparing((Appointment a) -> a.getPatient().getProfile())
+            .thenComparing(BY_DATE_TIME);
+
+    /**
+     * Orders providers by last name.
+     */
+    public static final Comparator<Provider> BY_PROVIDER_LAST_NAME = Comparator
+            .comparing(p -> p.getProfile().getLastName());
 
     /**
      * Sorts the given list of Appointment objects in place based on the provided
      * key.
-     * 
+     *
      * @param list the list of appointments to sort.
      * @param key  the key to sort by ('d' for date, 't' for timeslot, 'p' for
      *             patient).
      */
     public static void appointment(util.List<Appointment> list, char key) {
-        for (int i = 0; i < list.size() - 1; i++) {
-            for (int j = 0; j < list.size() - 1 - i; j++) {
-                boolean shouldSwap = false;
-                Appointment current = list.get(j);
-                Appointment next = list.get(j + 1);
-
-                switch (key) {
-                    case 'd': // Sort by date
-                        if (current.getDate().compareTo(next.getDate()) > 0) {
-                            shouldSwap = true;
-                        }
-                        break;
-                    case 't': // Sort by timeslot
-                        if (current.getDate().equals(next.getDate()) &&
-                                current.getTimeslot().compareTo(next.getTimeslot()) > 0) {
-                            shouldSwap = true;
-                        }
-                        break;
-                    case 'p': // Sort by patient's name
-                        String currentPatient = current.getPatient().getLastName() + " "
-                                + current.getPatient().getFirstName();
-                        String nextPatient = next.getPatient().getLastName() + " " + next.getPatient().getFirstName();
-                        if (currentPatient.compareTo(nextPatient) > 0) {
-                            shouldSwap = true;
-                        }
-                        break;
-                    default:
-                        System.out.println("Invalid key for sorting appointments.");
-                        return;
-                }
-
-                if (shouldSwap) {
-                    // Swap the appointments in place
-                    list.set(j, next);
-                    list.set(j + 1, current);
-                }
-            }
+        switch (key) {
+            case 'd': // Sort by date
+                sort(list, Comparator.comparing(Appointment::getDate));
+                break;
+            case 't': // Sort by timeslot within each date
+                sort(list, BY_DATE_TIME);
+                break;
+            case 'p': // Sort by patient's profile (last name, first name, dob)
+                sortByKey(list, a -> a.getPatient().getProfile(), Comparator.naturalOrder());
+                break;
+            default:
+                System.out.println("Invalid key for sorting appointments.");
+                break;
         }
     }
 
     /**
      * Sorts the given list of Appointment objects by county, then by date and
      * timeslot.
-     * 
-     * @param list the list of appointments to sort.
-     */
-    /**
-     * Sorts the given list of Appointment objects by county, then by date and
-     * timeslot.
-     * 
+     *
      * @param list the list of appointments to sort.
      */
     public static void appointmentByCounty(util.List<Appointment> list) {
-        for (int i = 0; i < list.size() - 1; i++) {
-            for (int j = 0; j < list.size() - 1 - i; j++) {
-                Appointment current = list.get(j);
-                Appointment next = list.get(j + 1);
-                boolean shouldSwap = false;
-
-                // Compare counties
-                String countyCurrent = current.getProvider().getLocation().getCounty();
-                String countyNext = next.getProvider().getLocation().getCounty();
-
-                // First, compare counties
-                if (countyCurrent.compareTo(countyNext) > 0) {
-                    shouldSwap = true;
-                } else if (countyCurrent.equals(countyNext)) {
-                    // If counties are the same, compare dates
-                    if (current.getDate().compareTo(next.getDate()) > 0) {
-                        shouldSwap = true;
-                    } else if (current.getDate().equals(next.getDate())) {
-                        // If dates are the same, compare timeslots
-                        if (current.getTimeslot().compareTo(next.getTimeslot()) > 0) {
-                            shouldSwap = true;
-                        } else if (current.getTimeslot().equals(next.getTimeslot())) {
-                            // If timeslots are the same, compare first names of the providers
-                            String firstNameCurrent = current.getProvider().getProfile().getFirstName();
-                            String firstNameNext = next.getProvider().getProfile().getFirstName();
-                            if (firstNameCurrent.compareTo(firstNameNext) > 0) {
-                                shouldSwap = true;
-                            }
-                        }
-                    }
-                }
-
-                // Perform the swap if necessary
-                if (shouldSwap) {
-                    list.set(j, next);
-                    list.set(j + 1, current);
-                }
-            }
-        }
+        sort(list, BY_COUNTY_DATE_TIME);
     }
 
+    /**
+     * Sorts the given list of Appointment objects by date, then timeslot, then
+     * provider name.
+     *
+     * @param list the list of appointments to sort.
+     */
     public static void appointmentByDateTimeAndProvider(util.List<Appointment> list) {
-        for (int i = 0; i < list.size() - 1; i++) {
-            for (int j = 0; j < list.size() - 1 - i; j++) {
-                Appointment current = list.get(j);
-                Appointment next = list.get(j + 1);
-                boolean shouldSwap = false;
-
-                // Compare dates first
-                int dateComparison = current.getDate().compareTo(next.getDate());
-                if (dateComparison > 0) {
-                    shouldSwap = true;
-                } else if (dateComparison == 0) {
-                    // If dates are the same, compare timeslots
-                    int timeslotComparison = current.getTimeslot().compareTo(next.getTimeslot());
-                    if (timeslotComparison > 0) {
-                        shouldSwap = true;
-                    } else if (timeslotComparison == 0) {
-                        // If timeslots are the same, compare provider's last names
-                        String lastNameCurrent = current.getProvider().getProfile().getLastName();
-                        String lastNameNext = next.getProvider().getProfile().getLastName();
-                        int lastNameComparison = lastNameCurrent.compareTo(lastNameNext);
-                        if (lastNameComparison > 0) {
-                            shouldSwap = true;
-                        } else if (lastNameComparison == 0) {
-                            // If last names are the same, compare first names
-                            String firstNameCurrent = current.getProvider().getProfile().getFirstName();
-                            String firstNameNext = next.getProvider().getProfile().getFirstName();
-                            if (firstNameCurrent.compareTo(firstNameNext) > 0) {
-                                shouldSwap = true;
-                            }
-                        }
-                    }
-                }
-
-                // Perform the swap if necessary
-                if (shouldSwap) {
-                    Appointment temp = list.get(j);
-                    list.set(j, list.get(j + 1));
-                    list.set(j + 1, temp);
-                }
-            }
-        }
+        sort(list, BY_DATE_TIME_PROVIDER);
     }
 
     /**
      * Sorts the given list of Provider objects in place.
      * This method modifies the original list.
-     * 
+     *
      * @param list the list of providers to sort.
      */
     public static void provider(util.List<Provider> list) {
-        for (int i = 0; i < list.size() - 1; i++) {
-            for (int j = 0; j < list.size() - 1 - i; j++) {
-                // Sort providers by last name
-                if (list.get(j).getProfile().getLastName().compareTo(list.get(j + 1).getProfile().getLastName()) > 0) {
-                    // Swap the providers in place
-                    Provider temp = list.get(j);
-                    list.set(j, list.get(j + 1));
-                    list.set(j + 1, temp);
-                }
+        sort(list, BY_PROVIDER_LAST_NAME);
+    }
+
+    /**
+     * Stable sort of the list in place using the given comparator.
+     *
+     * @param list  the list to sort.
+     * @param order the comparator chain that defines the order.
+     * @param <E>   the element type.
+     */
+    public static <E> void sort(util.List<E> list, Comparator<? super E> order) {
+        sortByKey(list, Function.identity(), order);
+    }
+
+    /**
+     * Stable sort of the list in place by a key computed once per element.
+     * Use this when the key is costly to derive, so it is not rebuilt on every
+     * comparison.
+     *
+     * @param list  the list to sort.
+     * @param keyOf extracts the sort key of an element.
+     * @param order the comparator chain over the keys.
+     * @param <E>   the element type.
+     * @param <K>   the key type.
+     */
+    @SuppressWarnings("unchecked")
+    public static <E, K> void sortByKey(util.List<E> list, Function<? super E, ? extends K> keyOf,
+            Comparator<? super K> order) {
+        int size = list.size();
+        if (size < 2) {
+            return;
+        }
+        Object[] elements = new Object[size];
+        Object[] keys = new Object[size];
+        for (int i = 0; i < size; i++) {
+            elements[i] = list.get(i);
+            keys[i] = keyOf.apply((E) elements[i]);
+        }
+
+        mergeSort(keys, elements, new Object[size], new Object[size], 0, size, (Comparator<Object>) order);
+
+        for (int i = 0; i < size; i++) {
+            list.set(i, (E) elements[i]);
+        }
+    }
+
+    /**
+     * Sorts keys[from, to) and moves elements along with their keys.
+     */
+    private static void mergeSort(Object[] keys, Object[] elements, Object[] keyBuffer, Object[] elementBuffer,
+            int from, int to, Comparator<Object> order) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(keys, elements, from, to, order);
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(keys, elements, keyBuffer, elementBuffer, from, mid, order);
+        mergeSort(keys, elements, keyBuffer, elementBuffer, mid, to, order);
+
+        // Already in order, nothing to merge
+        if (order.compare(keys[mid - 1], keys[mid]) <= 0) {
+            return;
+        }
+
+        System.arraycopy(keys, from, keyBuffer, from, to - from);
+        System.arraycopy(elements, from, elementBuffer, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            // Take from the left run on ties to keep the sort stable
+            if (right >= to || (left < mid && order.compare(keyBuffer[left], keyBuffer[right]) <= 0)) {
+                keys[i] = keyBuffer[left];
+                elements[i] = elementBuffer[left++];
+            } else {
+                keys[i] = keyBuffer[right];
+                elements[i] = elementBuffer[right++];
+            }
+        }
+    }
+
+    private static void insertionSort(Object[] keys, Object[] elements, int from, int to,
+            Comparator<Object> order) {
+        for (int i = from + 1; i < to; i++) {
+            Object key = keys[i];
+            Object element = elements[i];
+            int j = i - 1;
+            while (j >= from && order.compare(keys[j], key) > 0) {
+                keys[j + 1] = keys[j];
+                elements[j + 1] = elements[j];
+                j--;
             }
+            keys[j + 1] = key;
+            elements[j + 1] = element;
         }
     }
 }
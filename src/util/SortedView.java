@@ -0,0 +1,160 @@
+package util;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An ordered view over a collection that is kept sorted as elements are added
+ * and removed, so it can be listed in order without sorting.
+ *
+ * Elements that compare equal are kept in the order they were added. An
+ * element whose sort fields change must be removed before the change and added
+ * back after it.
+ *
+ * The view is safe for concurrent use: elements can be added and removed by
+ * several threads at once, and iteration sees the view as it is while it
+ * advances, without failing on concurrent changes.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+public class SortedView<E> implements Iterable<E> {
+    private final ConcurrentSkipListMap<Item<E>, Boolean> items; // Items in view order
+    private final ConcurrentHashMap<Identity<E>, Item<E>> itemOf; // Item of each element, for removal
+    private final AtomicLong sequence; // Insertion counter used to break ties
+
+    /**
+     * Constructs an empty view ordered by the given comparator.
+     *
+     * @param order the order of the view.
+     */
+    public SortedView(Comparator<? super E> order) {
+        Comparator<Item<E>> byElement = (a, b) -> order.compare(a.element, b.element);
+        this.items = new ConcurrentSkipListMap<>(byElement.thenComparingLong(e -> e.sequence)); // Ties by insertion
+        this.itemOf = new ConcurrentHashMap<>();
+        this.sequence = new AtomicLong();
+    }
+
+    /**
+     * Adds an element to the view in O(log n).
+     *
+     * @param element the element to add.
+     */
+    public void add(E element) {
+        Item<E> item = new Item<>(element, sequence.getAndIncrement());
+        itemOf.put(new Identity<>(element), item);
+        items.put(item, Boolean.TRUE);
+    }
+
+    /**
+     * Adds elements that are already in view order, keeping that order for
+     * the ones that compare equal.
+     *
+     * @param sorted the elements in view order.
+     */
+    public void addAllSorted(List<E> sorted) {
+        for (E element : sorted) {
+            add(element);
+        }
+    }
+
+    /**
+     * Removes an element from the view in O(log n).
+     *
+     * @param element the element to remove.
+     * @return true if the element was in the view, false otherwise.
+     */
+    public boolean remove(E element) {
+        Item<E> item = itemOf.remove(new Identity<>(element));
+        if (item == null) {
+            return false;
+        }
+        items.remove(item);
+        return true;
+    }
+
+    /**
+     * Removes every element from the view.
+     */
+    public void clear() {
+        items.clear();
+        itemOf.clear();
+    }
+
+    /**
+     * Gets the number of elements in the view.
+     *
+     * @return The number of elements in the view.
+     */
+    public int size() {
+        return itemOf.size();
+    }
+
+    /**
+     * Checks if the view is empty.
+     *
+     * @return true if the view is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    /**
+     * Returns an iterator over the elements in view order.
+     *
+     * @return An iterator over the view.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        Iterator<Item<E>> it = items.keySet().iterator();
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return it.next().element;
+            }
+        };
+    }
+
+    /**
+     * Looks an element up by identity, since the sort fields of an element
+     * may change while it is out of the view.
+     */
+    private static final class Identity<E> {
+        private final E element;
+
+        Identity(E element) {
+            this.element = element;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Identity && ((Identity<?>) obj).element == element;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(element);
+        }
+    }
+
+    /**
+     * An element of the view with its insertion sequence.
+     */
+    private static final class Item<E> {
+        private final E element;
+        private final long sequence;
+
+        Item(E element, long sequence) {
+            this.element = element;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package util;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ruclinic.Technician;
+
+/**
+ * Round-robin rotation of the technicians for imaging appointments.
+ *
+ * Each technician added goes to the head of the rotation, so the rotation runs
+ * from the last technician added to the first. The technicians are kept in an
+ * array and the current position in one atomic state, so several threads can
+ * claim technicians at once without locking: a thread reads the state, looks
+ * for an available technician from the first candidate, and claims them only
+ * if the state has not changed in the meantime.
+ *
+ * Until a technician is claimed, every search starts from the head. After
+ * that, it starts from the technician after the current one. Technicians are
+ * added before the rotation is shared.
+ *
+ * @author Paldeep Sekhon
+ * @author Aditya Ponni
+ */
+public class TechnicianRotation {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private Technician[] technicians; // In the order they were added, the head is the last one
+    private int size;
+    private final AtomicInteger state; // The current position, or -1 - position until the first claim
+
+    // Constructor for TechnicianRotation
+    public TechnicianRotation() {
+        technicians = new Technician[INITIAL_CAPACITY];
+        size = 0;
+        state = new AtomicInteger(-1);
+    }
+
+    // Add a technician to the head of the rotation. The current technician
+    // stays the same, one position further from the head
+    public void addTechnician(Technician technician) {
+        if (size == technicians.length) {
+            technicians = Arrays.copyOf(technicians, size * 2);
+        }
+        technicians[size] = technician;
+        if (size > 0) {
+            int current = state.get();
+            state.set(current < 0 ? current - 1 : current + 1);
+        }
+        size++;
+    }
+
+    // Get the technician at a position counted from the head
+    public Technician get(int position) {
+        return technicians[size - 1 - position];
+    }
+
+    /**
+     * Gets the state of the rotation to start a claim from.
+     *
+     * @return the state.
+     */
+    public int state() {
+        return state.get();
+    }
+
+    /**
+     * Gets the position of the first technician to try in a state.
+     *
+     * @param state a state of the rotation.
+     * @return the position to start the search from.
+     */
+    public int firstCandidate(int state) {
+        return state < 0 ? 0 : (state + 1) % size;
+    }
+
+    /**
+     * Claims the technician at a position, making them the current one, if
+     * the rotation is still in the given state.
+     *
+     * @param state    the state the search started from.
+     * @param position the position of the technician to claim.
+     * @return true if the technician was claimed, false if another thread
+     *         changed the rotation first and the search must start again.
+     */
+    public boolean claim(int state, int position) {
+        return this.state.compareAndSet(state, position);
+    }
+
+    /**
+     * Moves the current position back to the head after a search found no
+     * technician, if the rotation is still in the given state.
+     *
+     * @param state the state the search started from.
+     * @return true if the rotation was moved back, false if another thread
+     *         changed the rotation first and the search must start again.
+     */
+    public boolean rewind(int state) {
+        return this.state.compareAndSet(state, state < 0 ? -1 : 0);
+    }
+
+    // Check if a technician was ever claimed
+    public boolean hasClaimed() {
+        return state.get() >= 0;
+    }
+
+    // Get the position of the current technician, 0 for the head, -1 if empty
+    public int getCurrentPosition() {
+        if (size == 0) {
+            return -1;
+        }
+        int current = state.get();
+        return current < 0 ? -1 - current : current;
+    }
+
+    // Restore the current position, and whether a technician was claimed
+    public void setCurrentPosition(int position, boolean claimed) {
+        if (size == 0 || position < 0) {
+            return;
+        }
+        position %= size;
+        state.set(claimed ? position : -1 - position);
+    }
+
+    // Print the current rotation list
+    public void printTechnicianList(PrintWriter out) {
+        if (size == 0) {
+            out.println("Technician list is empty.");
+            return;
+        }
+
+        StringBuilder rotationList = new StringBuilder();
+        int current = getCurrentPosition();
+        for (int position = 0; position < size; position++) {
+            Technician technician = get(position);
+            // Mark current position with * for visualization
+            String marker = (position == current) ? "*" : "";
+            rotationList.append(String.format("%s%s %s (%s)%s --> ",
+                    marker,
+                    technician.getProfile().getFirstName(),
+                    technician.getProfile().getLastName(),
+                    technician.getLocation().getCity(),
+                    marker));
+        }
+
+        // Remove the last arrow
+        rotationList.setLength(rotationList.length() - 5);
+
+        out.println(rotationList.toString());
+    }
+
+    // Get the size of the rotation
+    public int size() {
+        return size;
+    }
+
+    // Check if the rotation is empty
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -0,0 +1,47 @@
+package util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ruclinic.Location;
+import ruclinic.Profile;
+import ruclinic.Technician;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TechnicianRotationTest {
+    private TechnicianRotation rotation;
+    private Technician first;
+    private Technician second;
+    private Technician third;
+
+    @BeforeEach
+    void setUp() {
+        rotation = new TechnicianRotation();
+        first = new Technician(new Profile("Alice", "Smith", new Date(1990, 10, 12)), Location.PISCATAWAY, 150);
+        second = new Technician(new Profile("Bob", "Jones", new Date(1985, 3, 4)), Location.EDISON, 120);
+        third = new Technician(new Profile("Carol", "Lee", new Date(1979, 7, 30)), Location.CLARK, 100);
+        rotation.addTechnician(first);
+        rotation.addTechnician(second);
+        rotation.addTechnician(third);
+    }
+
+    @Test
+    void rotatesFromLastAdded() {
+        assertSame(third, rotation.get(0), "The last technician added should be the head.");
+        assertSame(first, rotation.get(2), "The first technician added should be the tail.");
+        assertEquals(2, rotation.getCurrentPosition(), "The rotation should start at the tail.");
+        assertEquals(0, rotation.firstCandidate(rotation.state()), "The first search should start at the head.");
+    }
+
+    @Test
+    void claimMovesToNextTechnician() {
+        int state = rotation.state();
+        assertTrue(rotation.claim(state, 1));
+        assertEquals(2, rotation.firstCandidate(rotation.state()), "The search should start after the claim.");
+        assertFalse(rotation.claim(state, 2), "A claim from a stale state should fail.");
+
+        assertTrue(rotation.rewind(rotation.state()));
+        assertEquals(0, rotation.getCurrentPosition(), "Rewinding should move back to the head.");
+        assertEquals(1, rotation.firstCandidate(rotation.state()), "The search should start after the head.");
+    }
+}
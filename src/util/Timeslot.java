@@ -2,113 +2,101 @@ package util;
 
 /**
  * Represents timeslots for each appointment
- * 
+ *
+ * There are twelve timeslots a day, numbered 1 to 12. Each one has a single
+ * shared instance, so timeslots compare, hash and match by their slot number
+ * and can be compared with ==.
+ *
  * @author Paldeep Sekhon
  * @author Aditya Ponni
  */
 
-public class Timeslot implements Comparable<Timeslot> {
-    private int hour;
-    private int minute;
+public final class Timeslot implements Comparable<Timeslot> {
+    public static final int COUNT = 12; // Number of timeslots in a day
 
-    public Timeslot(int hour, int minute) {
+    // Start time of each slot, index 0 unused so the slot number is the index
+    private static final int[] HOURS = { 0, 9, 9, 10, 10, 11, 11, 14, 14, 15, 15, 16, 16 };
+    private static final int[] MINUTES = { 0, 0, 30, 0, 30, 0, 30, 0, 30, 0, 30, 0, 30 };
+    private static final Timeslot[] SLOTS = new Timeslot[COUNT + 1];
+
+    static {
+        for (int i = 1; i <= COUNT; i++) {
+            SLOTS[i] = new Timeslot((byte) i, HOURS[i], MINUTES[i]);
+        }
+    }
+
+    private final byte index; // Slot number, 1 to 12
+    private final int hour;
+    private final int minute;
+    private final String label; // Precomputed toString
+
+    private Timeslot(byte index, int hour, int minute) {
+        this.index = index;
         this.hour = hour;
         this.minute = minute;
+        this.label = String.format("%d:%02d %s",
+                (hour == 12 || hour == 0) ? 12 : hour % 12, // No leading zero for hours
+                minute, // Keep leading zero for minutes
+                (hour >= 12) ? "PM" : "AM"); // AM/PM indicator
     }
 
     @Override
     public String toString() {
-        return String.format("%d:%02d %s",
-                (hour == 12 || hour == 0) ? 12 : hour % 12, // No leading zero for hours
-                minute, // Keep leading zero for minutes
-                (hour >= 12) ? "PM" : "AM"); // AM/PM indicator
+        return label;
     }
 
     @Override
     public int compareTo(Timeslot other) {
-        if (this.hour != other.hour) {
-            return this.hour - other.hour;
-        }
-        return this.minute - other.minute;
+        return this.index - other.index; // Slot numbers follow the time of day
     }
 
-    // Implementing the equals() method to compare hour and minute
+    // Every slot number has a single instance, so equal timeslots are the same
+    // object
     @Override
     public boolean equals(Object obj) {
-        if (this == obj)
-            return true; // Same reference
-        if (obj == null || getClass() != obj.getClass())
-            return false; // Null or different class
-        Timeslot timeslot = (Timeslot) obj; // Cast to Timeslot
-        return hour == timeslot.hour && minute == timeslot.minute; // Compare hour and minute
+        return this == obj;
     }
 
-    // Implementing the hashCode() method to ensure consistency when using in
-    // hash-based collections
     @Override
     public int hashCode() {
-        return 31 * hour + minute; // Generate unique hash based on hour and minute
+        return index;
     }
 
     public static Timeslot fromString(String input) {
         try {
-            int slotNumber = Integer.parseInt(input); // Attempt to parse the input
-            switch (slotNumber) {
-                case 1:
-                    return new Timeslot(9, 0);
-                case 2:
-                    return new Timeslot(9, 30);
-                case 3:
-                    return new Timeslot(10, 0);
-                case 4:
-                    return new Timeslot(10, 30);
-                case 5:
-                    return new Timeslot(11, 0);
-                case 6:
-                    return new Timeslot(11, 30);
-                case 7:
-                    return new Timeslot(14, 0);
-                case 8:
-                    return new Timeslot(14, 30);
-                case 9:
-                    return new Timeslot(15, 0);
-                case 10:
-                    return new Timeslot(15, 30);
-                case 11:
-                    return new Timeslot(16, 0);
-                case 12:
-                    return new Timeslot(16, 30);
-                default:
-                    return null; // Invalid slot number
-            }
+            return fromIndex(Integer.parseInt(input)); // Attempt to parse the input
         } catch (NumberFormatException e) {
             return null; // Return null for invalid inputs
         }
     }
 
-    public int getHour() {
-        return hour;
-    }
-
-    public int getMinute() {
-        return minute;
-    }
-
     /**
-     * Sets the hour of this timeslot.
-     * 
-     * @param hour the hour to set (24-hour format).
+     * Gets the timeslot with the given slot number.
+     *
+     * @param slotNumber the slot number, 1 to 12.
+     * @return the timeslot, or null if the number is not a slot.
      */
-    public void setHour(int hour) {
-        this.hour = hour;
+    public static Timeslot fromIndex(int slotNumber) {
+        if (slotNumber < 1 || slotNumber > COUNT) {
+            return null; // Invalid slot number
+        }
+        return SLOTS[slotNumber];
     }
 
     /**
-     * Sets the minute of this timeslot.
-     * 
-     * @param minute the minute to set.
+     * Gets the slot number of this timeslot.
+     *
+     * @return the slot number, 1 to 12.
      */
-    public void setMinute(int minute) {
-        this.minute = minute;
+    public int getIndex() {
+        return index;
+    }
+
+    public int getHour() {
+        return hour;
+    }
+
+    public int getMinute() {
+        return minute;
     }
-}
\ No newline at end of file
+}
@@ -1,13 +1,14 @@
 package util;
 
-import org.junit.Test;
+import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class dateTest {
 
-    @org.junit.jupiter.api.Test
     @Test
     public void testIsValid() {
         // Valid Dates
@@ -28,4 +29,18 @@ class dateTest {
         assertFalse(invalidDate3.isValid(), "Invalid month (0) should return false.");
         assertFalse(invalidDate4.isValid(), "Invalid day (June 31) should return false.");
     }
+
+    @Test
+    public void testEpochDayOrder() {
+        assertEquals(0, new Date(1970, 1, 1).toEpochDay(), "1/1/1970 is epoch day 0.");
+        assertEquals(19783, new Date(2024, 3, 1).toEpochDay(), "3/1/2024 follows the leap day 2/29/2024.");
+
+        assertTrue(new Date(2024, 12, 31).compareTo(new Date(2025, 1, 1)) < 0, "Dates order across years.");
+        assertEquals(new Date(2025, 2, 28), new Date(2025, 2, 28), "Same dates are equal.");
+        assertEquals(new Date(2025, 2, 28).hashCode(), new Date(2025, 2, 28).hashCode(), "Same dates hash the same.");
+
+        // 2/30/2024 rolls over to the epoch day of 3/1/2024 but is not the same date
+        assertNotEquals(new Date(2024, 2, 30), new Date(2024, 3, 1), "An invalid date is not a valid one.");
+        assertTrue(new Date(2024, 2, 30).compareTo(new Date(2024, 3, 1)) < 0, "Invalid dates order by fields.");
+    }
 }